@@ -0,0 +1,55 @@
+package barcelona;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+import barcelona.task.Deadlines;
+import barcelona.task.Events;
+import barcelona.task.Task;
+import barcelona.task.Todos;
+import barcelona.ui.Ui;
+
+/**
+ * Shared fixtures for the benchmarks
+ */
+public final class BenchmarkData {
+    private static final String[] WORDS = {"read", "book", "return", "project", "meeting", "homework",
+        "assignment", "briefing", "gym", "groceries", "call", "mum", "lecture", "tutorial", "report"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates a deterministic mix of todos, deadlines and events
+     * @param size - number of tasks
+     * @return tasks with varied descriptions, a third of them done
+     */
+    public static ArrayList<Task> tasks(int size) {
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 9, 0);
+        ArrayList<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String description = WORDS[i % WORDS.length] + " " + WORDS[(i * 7 + 3) % WORDS.length] + " " + i;
+            Task task = switch (i % 3) {
+            case 0 -> new Todos(description);
+            case 1 -> new Deadlines(base.plusMinutes(i * 37L), description);
+            default -> new Events(description, base.plusHours(i), base.plusHours(i + 2));
+            };
+            if (i % 3 == 2) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Creates a logger that discards everything, so console output is not measured
+     */
+    public static Ui quietUi() {
+        return new Ui() {
+            @Override
+            public void log(Level level, String message) {
+            }
+        };
+    }
+}
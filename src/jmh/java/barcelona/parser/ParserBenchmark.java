@@ -0,0 +1,72 @@
+package barcelona.parser;
+
+import java.util.concurrent.TimeUnit;
+
+import barcelona.BenchmarkData;
+import barcelona.storage.NullStorage;
+import barcelona.storage.Storage;
+import barcelona.task.TaskList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Parser#reply} for commands that do not add or remove tasks,
+ * and the cost of command dispatch on its own.
+ * <p>
+ * {@code legacyDispatch} reproduces the previous front end ({@code split},
+ * {@code toUpperCase} and {@code Command.valueOf}, throwing for unknown input)
+ * next to the dispatch table, so running with {@code -prof gc} shows the
+ * difference in {@code gc.alloc.rate.norm} per command.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"list", "mark 1", "unmark 1", "mark abc", "find book", "due 1/1/2031 0000", "overdue", "help",
+        "hello there"})
+    private String input;
+
+    private final Parser parser = new Parser();
+    private final Storage storage = new NullStorage();
+    private TaskList taskList;
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Setup
+    public void setUp() {
+        taskList = new TaskList(BenchmarkData.tasks(size));
+    }
+
+    @Benchmark
+    public Parser.Command legacyDispatch() {
+        try {
+            return Parser.Command.valueOf(input.split(" ")[0].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Parser.Command tableDispatch() {
+        return Parser.lookup(input, Lexer.tokenEnd(input, 0));
+    }
+
+    @Benchmark
+    public String reply() {
+        return parser.reply(input, taskList, storage);
+    }
+}
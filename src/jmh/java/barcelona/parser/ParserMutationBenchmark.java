@@ -0,0 +1,59 @@
+package barcelona.parser;
+
+import java.util.concurrent.TimeUnit;
+
+import barcelona.BenchmarkData;
+import barcelona.storage.NullStorage;
+import barcelona.storage.Storage;
+import barcelona.task.TaskList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Parser#reply} for commands that add a task.
+ * <p>
+ * Each invocation adds a task and deletes it again, so the list keeps its size
+ * across iterations.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserMutationBenchmark {
+    @Param({"todo read book", "deadline return book /by 1/1/2099 1200",
+        "event project meeting /from 1/1/2099 1200 /to 2/1/2099 1200"})
+    private String input;
+
+    @Param({"1000"})
+    private int size;
+
+    private final Parser parser = new Parser();
+    private final Storage storage = new NullStorage();
+    private TaskList taskList;
+    private String delete;
+
+    @Setup
+    public void setUp() {
+        taskList = new TaskList(BenchmarkData.tasks(size));
+        delete = "delete " + (size + 1);
+    }
+
+    @Benchmark
+    public void addThenDelete(Blackhole blackhole) {
+        blackhole.consume(parser.reply(input, taskList, storage));
+        blackhole.consume(parser.reply(delete, taskList, storage));
+    }
+}
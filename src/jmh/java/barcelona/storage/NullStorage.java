@@ -0,0 +1,57 @@
+package barcelona.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import barcelona.task.Task;
+import barcelona.task.TaskList;
+import barcelona.ui.Ui;
+
+/**
+ * Storage that drops every change, so benchmarks of other components do not measure disk I/O
+ */
+public class NullStorage extends Storage {
+    public NullStorage() {
+        super("./build/jmh/null.txt", new Ui());
+    }
+
+    @Override
+    public void recordAdd(Task task) {
+    }
+
+    @Override
+    public void recordMark(Task task) {
+    }
+
+    @Override
+    public void recordDelete(Task task) {
+    }
+
+    @Override
+    public void recordMarks(List<Task> tasks) {
+    }
+
+    @Override
+    public void recordDeletes(List<Task> tasks) {
+    }
+
+    @Override
+    public void save(ArrayList<Task> tasklist) {
+    }
+
+    @Override
+    public void persist(ArrayList<Task> tasklist) {
+    }
+
+    @Override
+    public void save(TaskList tasklist) {
+    }
+
+    @Override
+    public void persist(TaskList tasklist) {
+    }
+
+    @Override
+    public void flush() {
+    }
+}
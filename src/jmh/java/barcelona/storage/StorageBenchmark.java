@@ -0,0 +1,93 @@
+package barcelona.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import barcelona.BenchmarkData;
+import barcelona.exception.FileCorruptedException;
+import barcelona.task.Task;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading and writing whole task files in each snapshot format and durability mode.
+ * <p>
+ * The size of the file is reported next to the time as the {@code fileBytes}
+ * counter, to weigh the compressed format's smaller files against its load
+ * and write time.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class StorageBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"TEXT", "BINARY", "COMPRESSED"})
+    private Storage.Format format;
+
+    @Param({"NONE", "ATOMIC", "FSYNC"})
+    private Storage.Durability durability;
+
+    private Path directory;
+    private ArrayList<Task> tasks;
+    private Storage storage;
+    private long fileBytes;
+
+    /**
+     * Size of the task file, reported as a secondary result of each benchmark
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FileSize {
+        public long fileBytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("barcelona-jmh");
+        tasks = BenchmarkData.tasks(size);
+        storage = new Storage(directory.resolve("tasks.txt").toString(), BenchmarkData.quietUi());
+        storage.setFormat(format);
+        storage.setDurability(durability);
+        storage.write(tasks);
+        fileBytes = Files.size(directory.resolve("tasks.txt"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Task> load(FileSize fileSize) throws FileCorruptedException {
+        fileSize.fileBytes = fileBytes;
+        return storage.load();
+    }
+
+    @Benchmark
+    public void write(FileSize fileSize) {
+        fileSize.fileBytes = fileBytes;
+        storage.write(tasks);
+    }
+}
@@ -0,0 +1,48 @@
+package barcelona.task;
+
+import java.util.concurrent.TimeUnit;
+
+import barcelona.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures converting a single task to its display and storage formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskBenchmark {
+    /** Index into the fixture tasks: 0 is a todo, 1 a deadline and 2 an event */
+    @Param({"0", "1", "2"})
+    private int type;
+
+    private Task task;
+
+    @Setup
+    public void setUp() {
+        task = BenchmarkData.tasks(3).get(type);
+    }
+
+    @Benchmark
+    public String export() {
+        return task.export();
+    }
+
+    @Benchmark
+    public String render() {
+        return task.toString();
+    }
+}
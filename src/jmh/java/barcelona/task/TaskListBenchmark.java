@@ -0,0 +1,65 @@
+package barcelona.task;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import barcelona.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures searching and rendering a {@link TaskList}.
+ * <p>
+ * The keywords cover a rare match, a miss, and a keyword shorter than a
+ * trigram that falls back to a scan. The compact backend has no search index,
+ * so it scans for every keyword.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class TaskListBenchmark {
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"999", "magazine", "gy"})
+    private String keyword;
+
+    @Param({"false", "true"})
+    private boolean isCompact;
+
+    private TaskList taskList;
+
+    @Setup
+    public void setUp() {
+        ArrayList<Task> tasks = BenchmarkData.tasks(size);
+        taskList = isCompact ? TaskList.compact(tasks) : new TaskList(tasks);
+    }
+
+    @Benchmark
+    public String filter() {
+        return taskList.filter(keyword);
+    }
+
+    @Benchmark
+    public String list() {
+        return taskList.list();
+    }
+
+    @Benchmark
+    public String listAsString() {
+        return taskList.listAsString(taskList.getList());
+    }
+}
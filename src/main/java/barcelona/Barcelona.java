@@ -1,10 +1,20 @@
 package barcelona;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import barcelona.exception.FileCorruptedException;
+import barcelona.metrics.Histogram;
+import barcelona.metrics.Metrics;
 import barcelona.parser.Parser;
 import barcelona.storage.Storage;
+import barcelona.storage.TaskFileCache;
 import barcelona.task.Task;
 import barcelona.task.TaskList;
 import barcelona.ui.Ui;
@@ -26,13 +36,14 @@ import barcelona.ui.Ui;
  *
  * <h2>Core Features</h2>
  * <ul>
- *   <li>Maintain a list of tasks in memory with file persistence support.</li>
+ *   <li>Maintain a list of tasks in memory with journaled file persistence.</li>
  *   <li>Add new tasks of type Todo, Deadline, or Event.</li>
  *   <li>Mark or unmark tasks as done.</li>
  *   <li>Delete tasks when no longer needed.</li>
  *   <li>Search for tasks by keyword.</li>
  *   <li>List all tasks currently stored.</li>
  *   <li>Change the storage directory to load or save tasks from a different file.</li>
+ *   <li>Report command latency and disk usage, also over JMX.</li>
  * </ul>
  *
  * <h2>Supported Commands</h2>
@@ -47,13 +58,39 @@ import barcelona.ui.Ui;
  *       Create a {@link barcelona.task.Events} task.</li>
  *   <li><b>DELETE &lt;index&gt;</b> – Remove the task at the specified index.</li>
  *   <li><b>FIND &lt;keyword&gt;</b> – Search for tasks containing the given keyword.</li>
+ *   <li><b>DUE &lt;date-time&gt; [&lt;date-time&gt;]</b> – List deadlines due by a date-time,
+ *       or between two date-times.</li>
+ *   <li><b>OVERDUE</b> – List unfinished deadlines that are past due.</li>
+ *   <li><b>STATS</b> – Show the latency of each command and storage operation, and bytes written.</li>
  * </ul>
+ * <p>
+ * MARK, UNMARK and DELETE also accept several tasks at once: indices and ranges
+ * such as {@code 3,7,9-20}, {@code done}, {@code undone} or {@code find <keyword>}.
+ * </p>
  */
 public class Barcelona {
+    /** Number of tasks handed to the listener of a background load at a time */
+    public static final int LOAD_BATCH_SIZE = 100;
+    private static final Histogram LOAD_LATENCY = Metrics.histogram("startup.load");
+
     private Storage storage;
-    private TaskList tasks;
+    private String storageKey;
+    private final TaskFileCache fileCache = new TaskFileCache(TaskFileCache.DEFAULT_MAX_ENTRIES,
+            TaskFileCache.DEFAULT_MAX_TASKS);
+    private volatile TaskList tasks;
     private final Ui ui;
     private final Parser parser;
+    private boolean isAutoSaveEnabled = true;
+    private boolean isJournalEnabled = true;
+    private Storage.Durability durability = Storage.Durability.ATOMIC;
+    private int shardSize;
+    private final boolean isCompact;
+    private final ExecutorService commandExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "barcelona-commands");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CompletableFuture<Integer> loaded = new CompletableFuture<>();
 
     /**
      * Creates a chatbot instance using the specified file path for task storage.
@@ -65,17 +102,100 @@ public class Barcelona {
      * @param filepath path to the file used for task persistence
      */
     public Barcelona(String filepath) {
+        this(filepath, false);
+    }
+
+    /**
+     * Creates a chatbot instance, optionally keeping its tasks in a memory-compact tasklist.
+     *
+     * @param filepath path to the file used for task persistence
+     * @param isCompact whether to use {@link TaskList#compact}, for very large task files
+     */
+    public Barcelona(String filepath, boolean isCompact) {
+        this(filepath, isCompact, null);
+    }
+
+    /**
+     * @param onBatch receives the tasks in batches while they are loaded on the command thread,
+     *                or null to load them before returning
+     */
+    private Barcelona(String filepath, boolean isCompact, Consumer<List<Task>> onBatch) {
         this.ui = new Ui();
-        this.storage = new Storage(filepath, ui);
+        this.isCompact = isCompact;
+        Metrics.registerMBean();
+        this.storage = openStorage(filepath);
+        this.storageKey = TaskFileCache.keyOf(filepath);
         this.parser = new Parser();
+        if (onBatch == null) {
+            load(Storage::load);
+            return;
+        }
+        tasks = newTaskList(new ArrayList<>());
+        commandExecutor.execute(() -> load(storage -> storage.load(LOAD_BATCH_SIZE, onBatch)));
+    }
+
+    /**
+     * Creates a chatbot that loads its task file on the command thread, so a window can be shown right away.
+     * <p>
+     * Parsed tasks are handed to {@code onBatch} in file order while the file is
+     * read, e.g. to show the first page. They are a preview: changes recorded in
+     * the journal are only applied once the whole file is read. Until then,
+     * {@link #isLoading()} is true, asynchronous commands queue up behind the
+     * load and synchronous ones wait for it.
+     * </p>
+     *
+     * @param filepath path to the file used for task persistence
+     * @param onBatch receives batches of at most {@link #LOAD_BATCH_SIZE} tasks on the command thread
+     * @return chatbot whose tasklist is empty until {@link #whenLoaded()} completes
+     */
+    public static Barcelona loadInBackground(String filepath, Consumer<List<Task>> onBatch) {
+        return new Barcelona(filepath, false, onBatch);
+    }
+
+    private interface Loader {
+        ArrayList<Task> load(Storage storage) throws FileCorruptedException;
+    }
+
+    private void load(Loader loader) {
+        long start = Metrics.start();
+        ArrayList<Task> loadedTasks = new ArrayList<>();
         try {
-            tasks = new TaskList(storage.load());
+            loadedTasks = loader.load(storage);
         } catch (FileCorruptedException e) {
             ui.log("Error loading file");
-            tasks = new TaskList();
+        } finally {
+            tasks = newTaskList(loadedTasks);
+            LOAD_LATENCY.recordSince(start);
+            Ui.flush();
+            loaded.complete(tasks.size());
         }
     }
 
+    /**
+     * Checks whether the task file is still being loaded in the background.
+     *
+     * @return true until every task is loaded and commands run against the full list
+     */
+    public boolean isLoading() {
+        return !loaded.isDone();
+    }
+
+    /**
+     * Returns a future that completes once the task file is loaded.
+     *
+     * @return future completed with the number of loaded tasks
+     */
+    public CompletableFuture<Integer> whenLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Waits for a background load; on the command thread, which runs the load first, it is always finished
+     */
+    private void awaitLoaded() {
+        loaded.join();
+    }
+
     /**
      * Changes the storage directory for task persistence.
      * <p>
@@ -83,22 +203,140 @@ public class Barcelona {
      * the existing storage will be updated and tasks will be reloaded. If the file
      * is invalid or corrupted, the current storage and task list remain unchanged.
      * </p>
+     * <p>
+     * The previous task file is persisted and flushed before the new one is
+     * opened, and then stays open in a {@link TaskFileCache}, so switching back to
+     * it does not load it again unless it was changed in the meantime. A task file
+     * is never open in two storages at once; choosing the current file again keeps
+     * the current tasklist.
+     * </p>
      *
      * @param filepath new file path for task storage
      * @return chatbot response message after attempting to load the new file
      */
     public String changeDirectory(String filepath) {
-        Storage storage = new Storage(filepath, ui);
-        try {
-            ArrayList<Task> newTaskList = storage.load();
-            this.storage = storage;
-            this.tasks = new TaskList(newTaskList);
+        awaitLoaded();
+        String key = TaskFileCache.keyOf(filepath);
+        if (key.equals(storageKey)) {
             return "Successfully loaded new file. Your tasks:\n" + tasks.list();
-        } catch (FileCorruptedException e) {
-            return "Error loading file";
+        }
+        this.storage.persist(tasks);
+        this.storage.flush();
+        TaskFileCache.Entry cached = fileCache.take(key);
+        Storage storage;
+        TaskList newTasks;
+        if (cached != null) {
+            storage = cached.storage();
+            storage.setAutoSave(isAutoSaveEnabled);
+            storage.setDurability(durability);
+            newTasks = cached.tasks();
+            applyJournal(storage, newTasks);
+        } else {
+            storage = openStorage(filepath);
+            try {
+                newTasks = newTaskList(storage.load());
+            } catch (FileCorruptedException e) {
+                storage.close();
+                return "Error loading file";
+            }
+        }
+        fileCache.put(storageKey, new TaskFileCache.Entry(this.storage, tasks));
+        this.storage = storage;
+        this.storageKey = key;
+        this.tasks = newTasks;
+        return "Successfully loaded new file. Your tasks:\n" + tasks.list();
+    }
+
+    private TaskList newTaskList(ArrayList<Task> loaded) {
+        return isCompact ? TaskList.compact(loaded) : new TaskList(loaded);
+    }
+
+    private Storage openStorage(String filepath) {
+        Storage storage = new Storage(filepath, ui);
+        if (isJournalEnabled) {
+            storage.enableJournal(Storage.DEFAULT_COMPACTION_THRESHOLD);
+        }
+        storage.enableBackgroundWriter();
+        storage.setAutoSave(isAutoSaveEnabled);
+        storage.setDurability(durability);
+        if (shardSize > 0) {
+            storage.enableSharding(shardSize);
+        }
+        return storage;
+    }
+
+    /**
+     * Sets how task files are written, for this and any later storage directory.
+     *
+     * @param durability durability mode, {@link Storage.Durability#ATOMIC} by default
+     */
+    public void setDurability(Storage.Durability durability) {
+        this.durability = durability;
+        storage.setDurability(durability);
+    }
+
+    /**
+     * Turns the journal on or off for this and any later task file.
+     * <p>
+     * With the journal, every change is appended to a journal file. Without it,
+     * marking tasks patches their done flags in the task file in place and other
+     * changes rewrite the file. The current task file is persisted first, and
+     * its journal is folded into the file when the journal is turned off.
+     * </p>
+     *
+     * @param isEnabled whether changes are recorded in a journal, true by default
+     */
+    public void setJournal(boolean isEnabled) {
+        awaitLoaded();
+        this.isJournalEnabled = isEnabled;
+        applyJournal(storage, tasks);
+    }
+
+    private void applyJournal(Storage storage, TaskList tasks) {
+        if (storage.hasJournal() == isJournalEnabled) {
+            return;
+        }
+        if (isJournalEnabled) {
+            storage.persist(tasks);
+            storage.flush();
+            storage.enableJournal(Storage.DEFAULT_COMPACTION_THRESHOLD);
+        } else {
+            storage.disableJournal(tasks);
         }
     }
 
+    /**
+     * Splits this and any later task file into shards, so saves only rewrite the shards that changed.
+     *
+     * @param shardSize number of task IDs per shard, see {@link Storage#enableSharding(int)}
+     */
+    public void enableSharding(int shardSize) {
+        this.shardSize = shardSize;
+        storage.enableSharding(shardSize);
+    }
+
+    /**
+     * Turns persisting after every command on or off.
+     * <p>
+     * Batch runs turn this off and call {@link #persist()} themselves, so a large
+     * script is written once per batch instead of once per command.
+     * </p>
+     *
+     * @param isEnabled whether each command persists its changes
+     */
+    public void setAutoSave(boolean isEnabled) {
+        this.isAutoSaveEnabled = isEnabled;
+        storage.setAutoSave(isEnabled);
+    }
+
+    /**
+     * Persists all changes made since the last save, even while auto-save is off.
+     */
+    public void persist() {
+        awaitLoaded();
+        storage.persist(tasks);
+    }
+
     /**
      * Processes user input and generates a chatbot response.
      * <p>
@@ -111,6 +349,111 @@ public class Barcelona {
      * @return a response string to be displayed in the chatbot UI
      */
     public String getResponse(String input) {
+        awaitLoaded();
         return parser.reply(input, this.tasks, storage);
     }
+
+    /**
+     * Processes user input off the caller's thread.
+     * <p>
+     * Commands submitted through the asynchronous methods run one at a time on a
+     * single command thread, in the order they were submitted, so the GUI thread
+     * never waits on parsing or storage.
+     * </p>
+     *
+     * @param input raw user input as a string
+     * @return future completed with the response string
+     */
+    public CompletableFuture<String> getResponseAsync(String input) {
+        return submit(() -> getResponse(input));
+    }
+
+    /**
+     * Changes the storage directory on the command thread.
+     *
+     * @param filepath new file path for task storage
+     * @return future completed with the chatbot response message
+     * @see #changeDirectory(String)
+     */
+    public CompletableFuture<String> changeDirectoryAsync(String filepath) {
+        return submit(() -> changeDirectory(filepath));
+    }
+
+    /**
+     * Takes a snapshot of the tasks on the command thread, after all previously submitted commands.
+     *
+     * @return future completed with a read-only snapshot of the tasks
+     * @see #getTasks()
+     */
+    public CompletableFuture<List<Task>> getTasksAsync() {
+        return submit(this::getTasks);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> command) {
+        return CompletableFuture.supplyAsync(command, commandExecutor);
+    }
+
+    /**
+     * Checks whether the user input would list all tasks.
+     *
+     * @param input raw user input as a string
+     * @return true if the input is a {@code list} command
+     */
+    public boolean isListCommand(String input) {
+        return Parser.isListCommand(input);
+    }
+
+    /**
+     * Returns the tasks currently in the {@link TaskList}.
+     * <p>
+     * The GUI renders this in a virtualized list instead of building the whole
+     * {@code list} reply as one string, so the returned list is a snapshot that
+     * later commands do not change. Calls between two changes share the same
+     * snapshot, see {@link TaskList#snapshot()}.
+     * </p>
+     *
+     * @return read-only snapshot of the tasks, in list order
+     */
+    public List<Task> getTasks() {
+        return tasks.snapshot();
+    }
+
+    /**
+     * Summarises the work done by the storage writer, including after {@link #close()}.
+     *
+     * @return storage writer statistics
+     */
+    public String getWriterStats() {
+        return storage.getWriterStats();
+    }
+
+    /**
+     * Summarises the latency of the writes to the current task file, by durability mode.
+     *
+     * @return storage write statistics
+     */
+    public String getWriteStats() {
+        return storage.getWriteStats();
+    }
+
+    /**
+     * Waits for submitted commands, writes any pending changes to disk and stops the storage writer.
+     * <p>
+     * Must be called before the application exits.
+     * </p>
+     */
+    public void close() {
+        commandExecutor.shutdown();
+        try {
+            if (!commandExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                ui.log("Pending commands did not finish before exit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        persist();
+        storage.close();
+        fileCache.clear();
+        Ui.flush();
+    }
 }
@@ -0,0 +1,176 @@
+package barcelona.main;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import barcelona.Barcelona;
+import barcelona.storage.Storage;
+
+/**
+ * Headless entry point that runs a script of commands without the GUI.
+ * <p>
+ * Commands are read one per line from a file, or from stdin if no file is
+ * given, and run through {@link Barcelona#getResponse(String)} in order. Auto-save
+ * is turned off, so changes are persisted once every {@code --save-every}
+ * commands and once at the end, instead of once per command. Replies are
+ * printed to stdout and a throughput summary is printed to stderr.
+ * {@code --compact} keeps the tasks in a memory-compact tasklist, for task files
+ * with millions of tasks. {@code --durability} sets how the task file is written,
+ * and the latency of each kind of write is printed with the summary.
+ * {@code --shards} splits the task file into shards of that many task IDs.
+ * {@code --no-journal} writes changes to the task file itself instead of a
+ * journal, patching done flags in place.
+ * </p>
+ *
+ * <pre>
+ * Usage: Batch [--data &lt;task file&gt;] [--save-every &lt;n&gt;] [--quiet] [--compact]
+ *              [--durability none|atomic|fsync] [--shards &lt;n&gt;] [--no-journal] [&lt;script&gt;]
+ * </pre>
+ */
+public class Batch {
+    private static final String DEFAULT_DATA_PATH = "./data/duke.txt";
+    private static final String LINE = "____________________________________________________________";
+    private static final String USAGE = "Usage: Batch [--data <task file>] [--save-every <n>] [--quiet] [--compact]"
+            + " [--durability none|atomic|fsync] [--shards <n>] [--no-journal] [<script>]";
+
+    private final Barcelona barcelona;
+    private final int saveEvery;
+    private final PrintStream out;
+    private long[] latencies = new long[1024];
+    private int commandCount;
+    private long persistNanos;
+
+    /**
+     * Creates a batch runner
+     * @param barcelona - chatbot to run the commands against
+     * @param saveEvery - number of commands between saves, or 0 to save only at the end
+     * @param out - stream to print replies to, or null to discard them
+     */
+    public Batch(Barcelona barcelona, int saveEvery, PrintStream out) {
+        this.barcelona = barcelona;
+        this.saveEvery = saveEvery;
+        this.out = out;
+        barcelona.setAutoSave(false);
+    }
+
+    public static void main(String[] args) {
+        String dataPath = DEFAULT_DATA_PATH;
+        String scriptPath = null;
+        int saveEvery = 0;
+        boolean isQuiet = false;
+        boolean isCompact = false;
+        Storage.Durability durability = Storage.Durability.ATOMIC;
+        int shardSize = 0;
+        boolean isJournalEnabled = true;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                case "--data" -> dataPath = args[++i];
+                case "--save-every" -> saveEvery = Integer.parseInt(args[++i]);
+                case "--quiet" -> isQuiet = true;
+                case "--compact" -> isCompact = true;
+                case "--durability" -> durability = Storage.Durability.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--shards" -> shardSize = Integer.parseInt(args[++i]);
+                case "--no-journal" -> isJournalEnabled = false;
+                default -> scriptPath = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        Barcelona barcelona = new Barcelona(dataPath, isCompact);
+        barcelona.setDurability(durability);
+        if (shardSize > 0) {
+            barcelona.enableSharding(shardSize);
+        }
+        barcelona.setJournal(isJournalEnabled);
+        Batch batch = new Batch(barcelona, saveEvery, isQuiet ? null : System.out);
+        long start = System.nanoTime();
+        try (InputStream in = scriptPath == null ? System.in : new FileInputStream(scriptPath)) {
+            batch.run(in);
+        } catch (IOException e) {
+            System.err.println("Error reading script: " + e.getMessage());
+        } finally {
+            long persistStart = System.nanoTime();
+            barcelona.close();
+            batch.persistNanos += System.nanoTime() - persistStart;
+        }
+        System.err.println(batch.summary(System.nanoTime() - start));
+        System.err.println("Storage writer: " + barcelona.getWriterStats());
+        String writeStats = barcelona.getWriteStats();
+        System.err.println("Storage writes: " + (writeStats.isEmpty() ? "none" : writeStats));
+    }
+
+    /**
+     * Runs every command in the stream until it ends or a {@code bye} command is read
+     * @param in - commands, one per line, in UTF-8
+     * @throws IOException if the stream cannot be read
+     */
+    public void run(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            long commandStart = System.nanoTime();
+            String reply = barcelona.getResponse(line);
+            recordLatency(System.nanoTime() - commandStart);
+            if (out != null) {
+                out.println(LINE + "\n" + reply + "\n" + LINE);
+            }
+            if (saveEvery > 0 && commandCount % saveEvery == 0) {
+                long persistStart = System.nanoTime();
+                barcelona.persist();
+                persistNanos += System.nanoTime() - persistStart;
+            }
+            if (line.strip().equalsIgnoreCase("bye")) {
+                break;
+            }
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        if (commandCount == latencies.length) {
+            latencies = Arrays.copyOf(latencies, commandCount * 2);
+        }
+        latencies[commandCount++] = nanos;
+    }
+
+    /**
+     * Summarises throughput and command latency
+     * @param elapsedNanos - wall-clock time of the whole run
+     * @return summary with commands/sec and p50, p90, p99 and max latency
+     */
+    public String summary(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(latencies, commandCount);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        return String.format("%d commands in %.3f s (%.0f commands/sec), %.3f s persisting%n"
+                        + "latency p50 %s, p90 %s, p99 %s, max %s",
+                commandCount, seconds, commandCount / Math.max(seconds, 1e-9), persistNanos / 1e9,
+                formatNanos(percentile(sorted, 50)), formatNanos(percentile(sorted, 90)),
+                formatNanos(percentile(sorted, 99)), formatNanos(commandCount == 0 ? 0 : sorted[commandCount - 1]));
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format("%.1f us", nanos / 1e3);
+    }
+}
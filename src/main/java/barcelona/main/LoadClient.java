@@ -0,0 +1,122 @@
+package barcelona.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load-test client for a local {@link Server}.
+ * <p>
+ * Opens several connections at once and sends the same command on each of
+ * them as fast as the replies come back. At the end, requests/sec and the
+ * latency percentiles over all requests are printed.
+ * </p>
+ *
+ * <pre>
+ * Usage: LoadClient [--port &lt;port&gt;] [--clients &lt;n&gt;] [--requests &lt;n per client&gt;] [--command &lt;command&gt;]
+ * </pre>
+ */
+public class LoadClient {
+    private static final String USAGE = "Usage: LoadClient [--port <port>] [--clients <n>]"
+            + " [--requests <n per client>] [--command <command>]";
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = Server.DEFAULT_PORT;
+        int clients = 8;
+        int requests = 10000;
+        String command = "find task";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--requests" -> requests = Integer.parseInt(args[++i]);
+                case "--command" -> command = args[++i];
+                default -> throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        System.out.println(run(port, clients, requests, command));
+    }
+
+    /**
+     * Sends {@code requests} commands on each of {@code clients} connections
+     * @param port - port of the server on the loopback address
+     * @param clients - number of concurrent connections
+     * @param requests - number of commands each connection sends
+     * @param command - command to send
+     * @return summary with requests/sec and p50, p90, p99 and max latency
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public static String run(int port, int clients, int requests, String command) throws InterruptedException {
+        long[][] latencies = new long[clients][];
+        AtomicInteger failedClients = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            final int client = c;
+            threads.add(new Thread(() -> {
+                try {
+                    latencies[client] = sendAll(port, requests, command);
+                } catch (IOException e) {
+                    failedClients.incrementAndGet();
+                    latencies[client] = new long[0];
+                }
+            }, "load-client-" + c));
+        }
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        long[] sorted = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        double seconds = elapsedNanos / 1e9;
+        return String.format("%d requests from %d clients in %.3f s (%.0f requests/sec), %d clients failed%n"
+                        + "latency p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us",
+                sorted.length, clients, seconds, sorted.length / Math.max(seconds, 1e-9), failedClients.get(),
+                percentile(sorted, 50) / 1e3, percentile(sorted, 90) / 1e3,
+                percentile(sorted, 99) / 1e3, percentile(sorted, 100) / 1e3);
+    }
+
+    private static long[] sendAll(int port, int requests, String command) throws IOException {
+        long[] latencies = new long[requests];
+        byte[] line = (command + "\n").getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                out.write(line);
+                out.flush();
+                String reply = Server.readReply(in);
+                if (reply == null || reply.equals(Server.BUSY_REPLY)) {
+                    throw new IOException("server closed the connection");
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -3,7 +3,10 @@ package barcelona.main;
 import java.io.IOException;
 
 import barcelona.Barcelona;
+import barcelona.metrics.Histogram;
+import barcelona.metrics.Metrics;
 import barcelona.ui.MainWindow;
+import barcelona.ui.Ui;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -12,9 +15,20 @@ import javafx.stage.Stage;
 
 /**
  * Main function for JavaFX Application
+ * <p>
+ * The window is shown before the task file is loaded. The time from launch to
+ * the first window and to the fully loaded tasklist are reported separately,
+ * as {@code startup.window} and {@code startup.loaded}, and logged at
+ * {@link Ui.Level#INFO}.
+ * </p>
  */
 public class Main extends Application {
-    private final Barcelona barcelona = new Barcelona("./data/duke.txt");
+    private static final long LAUNCH_NANOS = System.nanoTime();
+    private static final Histogram WINDOW_LATENCY = Metrics.histogram("startup.window");
+    private static final Histogram LOADED_LATENCY = Metrics.histogram("startup.loaded");
+
+    private final Ui ui = new Ui();
+    private Barcelona barcelona;
 
     @Override
     public void start(Stage stage) {
@@ -24,10 +38,31 @@ public class Main extends Application {
             Scene scene = new Scene(ap);
             stage.setTitle("Barcelona - your personal Tasklist app");
             stage.setScene(scene);
-            fxmlLoader.<MainWindow>getController().setBarcelona(barcelona);
+            MainWindow window = fxmlLoader.getController();
+            barcelona = Barcelona.loadInBackground("./data/duke.txt", window::showLoadedBatch);
+            window.setBarcelona(barcelona);
             stage.show();
+            report("First window", WINDOW_LATENCY);
+            barcelona.whenLoaded().thenRun(() -> report("Fully loaded", LOADED_LATENCY));
         } catch (IOException e) {
             System.out.println(e.getMessage());
         }
     }
+
+    private void report(String milestone, Histogram latency) {
+        long nanos = System.nanoTime() - LAUNCH_NANOS;
+        if (Metrics.isEnabled()) {
+            latency.record(nanos);
+        }
+        if (ui.isEnabled(Ui.Level.INFO)) {
+            ui.log(Ui.Level.INFO, String.format("%s after %.1f ms", milestone, nanos / 1e6));
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (barcelona != null) {
+            barcelona.close();
+        }
+    }
 }
@@ -0,0 +1,292 @@
+package barcelona.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import barcelona.Barcelona;
+import barcelona.storage.Storage;
+
+/**
+ * Serves one {@link Barcelona} to several clients over a loopback TCP port.
+ * <p>
+ * Every client sends commands as UTF-8 lines and receives each reply as its
+ * length in bytes on a line of its own, followed by the reply itself. All
+ * commands run on Barcelona's command thread in the order they arrive, so
+ * clients share one tasklist and one task file without overwriting each
+ * other's changes.
+ * </p>
+ * <p>
+ * Each connection is served by a thread from a pool bounded by the connection
+ * limit, and reads its next command only after the previous reply was sent,
+ * so a busy server slows clients down instead of queueing without bound.
+ * Connections beyond the limit are sent {@link #BUSY_REPLY} and closed.
+ * </p>
+ *
+ * <pre>
+ * Usage: Server [--data &lt;task file&gt;] [--port &lt;port&gt;] [--max-connections &lt;n&gt;]
+ *               [--durability none|atomic|fsync] [--shards &lt;n&gt;] [--no-journal]
+ * </pre>
+ */
+public class Server implements Closeable {
+    public static final int DEFAULT_PORT = 7878;
+    public static final int DEFAULT_MAX_CONNECTIONS = 16;
+    static final String BUSY_REPLY = "OOPS!!! The server is busy, please try again later.";
+    private static final String DEFAULT_DATA_PATH = "./data/duke.txt";
+    private static final String BYE_REPLY = "Bye. Hope to see you again soon!";
+    private static final String USAGE = "Usage: Server [--data <task file>] [--port <port>] [--max-connections <n>]"
+            + " [--durability none|atomic|fsync] [--shards <n>] [--no-journal]";
+
+    private final Barcelona barcelona;
+    private final ServerSocket serverSocket;
+    private final Semaphore connectionPermits;
+    private final ExecutorService connectionPool;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger rejectedCount = new AtomicInteger();
+    private Thread acceptThread;
+
+    /**
+     * Binds a server to a loopback port
+     * @param barcelona - chatbot shared by all clients
+     * @param port - port to listen on, or 0 for any free port
+     * @param maxConnections - number of clients that may be connected at once
+     * @throws IOException if the port cannot be bound
+     */
+    public Server(Barcelona barcelona, int port, int maxConnections) throws IOException {
+        assert maxConnections > 0;
+        this.barcelona = barcelona;
+        this.serverSocket = new ServerSocket(port, maxConnections, InetAddress.getLoopbackAddress());
+        this.connectionPermits = new Semaphore(maxConnections);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.connectionPool = Executors.newFixedThreadPool(maxConnections, runnable -> {
+            Thread thread = new Thread(runnable, "barcelona-connection-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        String dataPath = DEFAULT_DATA_PATH;
+        int port = DEFAULT_PORT;
+        int maxConnections = DEFAULT_MAX_CONNECTIONS;
+        Storage.Durability durability = Storage.Durability.ATOMIC;
+        int shardSize = 0;
+        boolean isJournalEnabled = true;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                case "--data" -> dataPath = args[++i];
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--max-connections" -> maxConnections = Integer.parseInt(args[++i]);
+                case "--durability" -> durability = Storage.Durability.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--shards" -> shardSize = Integer.parseInt(args[++i]);
+                case "--no-journal" -> isJournalEnabled = false;
+                default -> throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        Barcelona barcelona = new Barcelona(dataPath);
+        barcelona.setDurability(durability);
+        if (shardSize > 0) {
+            barcelona.enableSharding(shardSize);
+        }
+        barcelona.setJournal(isJournalEnabled);
+        Server server = new Server(barcelona, port, maxConnections);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            barcelona.close();
+        }));
+        System.out.println("Barcelona server listening on " + server.getAddress());
+        server.run();
+    }
+
+    /**
+     * Returns the address clients connect to
+     */
+    public String getAddress() {
+        return serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns how many connections were turned away because the connection limit was reached
+     */
+    public int getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Accepts clients on a background thread until the server is closed
+     */
+    public void start() {
+        acceptThread = new Thread(this::run, "barcelona-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Accepts clients on the calling thread until the server is closed
+     */
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                break;
+            }
+            if (!connectionPermits.tryAcquire()) {
+                rejectedCount.incrementAndGet();
+                reject(socket);
+                continue;
+            }
+            connectionPool.execute(() -> {
+                try {
+                    serve(socket);
+                } finally {
+                    connectionPermits.release();
+                }
+            });
+        }
+    }
+
+    private static void reject(Socket socket) {
+        try (socket) {
+            OutputStream out = socket.getOutputStream();
+            writeReply(out, BUSY_REPLY);
+            out.flush();
+        } catch (IOException e) {
+            // the client is turned away either way
+        }
+    }
+
+    /**
+     * Runs the commands of one client until it says bye or disconnects
+     */
+    private void serve(Socket socket) {
+        connections.add(socket);
+        if (serverSocket.isClosed()) {
+            closeQuietly(socket);
+        }
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            String command;
+            while ((command = readLine(in)) != null) {
+                if (command.isBlank()) {
+                    continue;
+                }
+                String reply = barcelona.getResponseAsync(command).join();
+                writeReply(out, reply);
+                out.flush();
+                if (reply.equals(BYE_REPLY)) {
+                    break;
+                }
+            }
+        } catch (SocketException e) {
+            // the client disconnected
+        } catch (IOException e) {
+            System.err.println("Connection error: " + e.getMessage());
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Stops accepting clients and disconnects the connected ones
+     * <p>The shared Barcelona is not closed, so its owner can still persist it.</p>
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        connectionPool.shutdown();
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * Writes a reply as its UTF-8 length on one line, followed by the reply
+     * @param out - stream to the client
+     * @param reply - reply to send
+     * @throws IOException if the client cannot be written to
+     */
+    static void writeReply(OutputStream out, String reply) throws IOException {
+        byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+        out.write((bytes.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a reply written by {@link #writeReply}
+     * @param in - stream from the server
+     * @return the reply, or null if the server closed the connection
+     * @throws IOException if the stream ends in the middle of a reply
+     */
+    static String readReply(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        int length = Integer.parseInt(header);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("reply was cut off");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads one UTF-8 line without its line terminator
+     * @return the line, or null at the end of the stream
+     */
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
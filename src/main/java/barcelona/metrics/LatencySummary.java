@@ -0,0 +1,34 @@
+package barcelona.metrics;
+
+/**
+ * Point-in-time summary of a {@link Histogram}, in nanoseconds
+ */
+public class LatencySummary {
+    private final long count;
+    private final long p50;
+    private final long p99;
+    private final long max;
+
+    LatencySummary(Histogram histogram) {
+        this.count = histogram.getCount();
+        this.p50 = histogram.getPercentile(50);
+        this.p99 = histogram.getPercentile(99);
+        this.max = histogram.getMax();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
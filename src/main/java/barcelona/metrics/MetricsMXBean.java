@@ -0,0 +1,34 @@
+package barcelona.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link Metrics}, registered as {@value Metrics#OBJECT_NAME}
+ * so the metrics can be read with JConsole or any other JMX client.
+ */
+public interface MetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean isEnabled);
+
+    /**
+     * Returns the latency of each instrumented operation, by name
+     */
+    Map<String, LatencySummary> getLatencies();
+
+    long getBytesWritten();
+
+    long getTasksLoaded();
+
+    long getTasksWritten();
+
+    /**
+     * Returns the same summary as the {@code stats} command
+     */
+    String getReport();
+
+    /**
+     * Clears every histogram and counter
+     */
+    void reset();
+}
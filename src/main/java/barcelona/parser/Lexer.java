@@ -0,0 +1,106 @@
+package barcelona.parser;
+
+/**
+ * Reads space separated tokens out of user input in place.
+ * <p>
+ * Tokens are addressed by their start and end positions in the input string,
+ * so no arrays or substrings are created to inspect them, and malformed numbers
+ * are reported through a sentinel value instead of an exception. Tokens follow
+ * the rules of {@code input.split(" ")}: they are separated by single spaces,
+ * and trailing spaces do not start a new token.
+ * </p>
+ */
+final class Lexer {
+    static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    private Lexer() {
+    }
+
+    /**
+     * Returns the end of the token starting at {@code from}
+     * @param input - user input
+     * @param from - start of the token
+     * @return position of the next space, or the input length if there is none
+     */
+    static int tokenEnd(String input, int from) {
+        int space = input.indexOf(' ', from);
+        return space == -1 ? input.length() : space;
+    }
+
+    /**
+     * Checks whether anything other than spaces follows a position
+     * @param input - user input
+     * @param from - position to start checking at
+     * @return true if another token follows
+     */
+    static boolean hasMoreTokens(String input, int from) {
+        for (int i = from; i < input.length(); i++) {
+            if (input.charAt(i) != ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the tokens in the input the way {@code input.split(" ").length} would
+     * @param input - user input
+     * @return number of tokens
+     */
+    static int countTokens(String input) {
+        int end = input.length();
+        while (end > 0 && input.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (input.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a token is the given word, ignoring case
+     * @param input - user input
+     * @param from - start of the token
+     * @param to - end of the token
+     * @param word - word to compare with
+     * @return true if the token and the word are equal
+     */
+    static boolean matches(String input, int from, int to, String word) {
+        return to - from == word.length() && input.regionMatches(true, from, word, 0, word.length());
+    }
+
+    /**
+     * Parses a decimal int the same way {@link Integer#parseInt(String)} does
+     * @param input - user input
+     * @param from - start of the number
+     * @param to - end of the number
+     * @return the number, or {@link #NOT_A_NUMBER} if the text is not a valid int
+     */
+    static long parseInt(String input, int from, int to) {
+        if (from >= to) {
+            return NOT_A_NUMBER;
+        }
+        boolean isNegative = input.charAt(from) == '-';
+        int i = isNegative || input.charAt(from) == '+' ? from + 1 : from;
+        if (i == to) {
+            return NOT_A_NUMBER;
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = Character.digit(input.charAt(i), 10);
+            if (digit < 0) {
+                return NOT_A_NUMBER;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return NOT_A_NUMBER;
+            }
+        }
+        value = isNegative ? -value : value;
+        return value > Integer.MAX_VALUE ? NOT_A_NUMBER : value;
+    }
+}
@@ -3,7 +3,13 @@ package barcelona.parser;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
 
+import barcelona.metrics.Histogram;
+import barcelona.metrics.Metrics;
 import barcelona.storage.Storage;
 import barcelona.task.Deadlines;
 import barcelona.task.Events;
@@ -13,12 +19,27 @@ import barcelona.task.Todos;
 
 /**
  * Parses and processes user input commands for the chatbot.
+ * <p>
+ * Input is read in a single pass with {@link Lexer}: the command word is
+ * looked up in a dispatch table without creating substrings, and handlers
+ * read their arguments by position. Unknown commands and malformed task
+ * indices are detected without throwing exceptions.
+ * </p>
+ * <p>
+ * {@code mark}, {@code unmark} and {@code delete} also accept a selection of
+ * several tasks, e.g. {@code 3,7,9-20}, {@code done} or {@code find <keyword>}.
+ * A selection is applied to the tasklist as one batch and persisted once.
+ * </p>
+ * <p>
+ * The latency of every reply, including persisting its changes, is recorded
+ * in {@link Metrics} per command, and summarised by the {@code stats} command.
+ * </p>
  */
 public class Parser {
     /**
      * Supported command types.
      */
-    private enum Command {
+    enum Command {
         BYE,
         LIST,
         MARK,
@@ -28,6 +49,9 @@ public class Parser {
         EVENT,
         DELETE,
         FIND,
+        DUE,
+        OVERDUE,
+        STATS,
         HELP
     }
 
@@ -45,8 +69,85 @@ public class Parser {
 
             - mark/unmark <task index>: track your progress
             - delete <task index>: remove a task
+
+            mark, unmark and delete also take several tasks at once:
+            indices and ranges like 3,7,9-20, done, undone or find <keyword>
+
             - find <search keyword>: search tasks
+            - due <date-time>: deadlines due by then
+            - due <date-time> <date-time>: deadlines due in between
+            - overdue: unfinished deadlines that are past due
+            - stats: latency and disk usage so far
             - bye: say goodbye""";
+
+    private static final String UNKNOWN_COMMAND = "OOPS!!! I'm sorry, but I don't know what that means :-(";
+    private static final String INVALID_DATE =
+            "Invalid date/time provided: Please provide in the format dd/mm/yyyy HHmm";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
+
+    /** Commands grouped by the length of their name, for lookup without allocation */
+    private static final Command[][] COMMANDS_BY_LENGTH = buildDispatchTable();
+
+    /** Reply latency of each command, by ordinal */
+    private static final Histogram[] REPLY_LATENCIES = Arrays.stream(Command.values())
+            .map(command -> Metrics.histogram("reply." + command.name().toLowerCase(Locale.ROOT)))
+            .toArray(Histogram[]::new);
+
+    private static final int NO_INDEX = -1;
+    private static final int NOT_A_NUMBER = -2;
+    private static final int NO_SUCH_TASK = -3;
+    private static final int INVALID_RANGE = -4;
+    private static final int NO_KEYWORD = -5;
+    private static final int NO_MATCHES = -6;
+
+    private static final String DONE = "done";
+    private static final String UNDONE = "undone";
+    private static final String FIND = "find";
+
+    private static Command[][] buildDispatchTable() {
+        int longest = 0;
+        for (Command command : Command.values()) {
+            longest = Math.max(longest, command.name().length());
+        }
+        Command[][] table = new Command[longest + 1][];
+        for (int length = 0; length <= longest; length++) {
+            final int nameLength = length;
+            table[length] = Arrays.stream(Command.values())
+                    .filter(command -> command.name().length() == nameLength)
+                    .toArray(Command[]::new);
+        }
+        return table;
+    }
+
+    /**
+     * Finds the command whose name matches the first {@code length} characters, ignoring case
+     * @return the command, or null if there is none
+     */
+    static Command lookup(String input, int length) {
+        if (length >= COMMANDS_BY_LENGTH.length) {
+            return null;
+        }
+        for (Command command : COMMANDS_BY_LENGTH[length]) {
+            if (input.regionMatches(true, 0, command.name(), 0, length)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the user input is a {@code list} command.
+     * <p>
+     * The GUI uses this to render the tasklist as rows instead of as one reply string.
+     * </p>
+     *
+     * @param input the user input string
+     * @return true if the input lists all tasks
+     */
+    public static boolean isListCommand(String input) {
+        return lookup(input, Lexer.tokenEnd(input, 0)) == Command.LIST;
+    }
+
     /**
      * Returns the chatbot's reply based on the user input.
      *
@@ -57,114 +158,233 @@ public class Parser {
      */
     public String reply(String input, TaskList taskList, Storage storage) {
         assert !input.isEmpty();
-        String response;
-        Command action;
-        try {
-            action = Command.valueOf(input.split(" ")[0].toUpperCase());
-        } catch (IllegalArgumentException e) {
-            return "OOPS!!! I'm sorry, but I don't know what that means :-(";
+        int commandEnd = Lexer.tokenEnd(input, 0);
+        Command action = lookup(input, commandEnd);
+        if (action == null) {
+            return UNKNOWN_COMMAND;
         }
-        switch (action) {
-        case BYE:
-            response = "Bye. Hope to see you again soon!";
-            break;
-        case LIST:
-            response = taskList.list();
-            break;
-        case MARK:
-            response = handleMark(input, taskList);
-            break;
-        case UNMARK:
-            response = handleUnmark(input, taskList);
-            break;
-        case TODO:
-            response = handleCreateTodo(input, taskList);
-            break;
-        case DEADLINE:
-            response = handleCreateDeadline(input, taskList);
-            break;
-        case EVENT:
-            response = handleCreateEvent(input, taskList);
-            break;
-        case DELETE:
-            response = handleDelete(input, taskList);
-            break;
-        case FIND:
-            response = handleFind(input, taskList);
-            break;
-        case HELP:
-            response = HELP_COMMANDS;
-            break;
-        default:
-            response = "OOPS!!! I'm sorry, but I don't know what that means :-(";
-            break;
+        long start = Metrics.start();
+        String response = switch (action) {
+        case BYE -> "Bye. Hope to see you again soon!";
+        case LIST -> taskList.list();
+        case MARK -> handleMark(input, commandEnd, taskList, storage);
+        case UNMARK -> handleUnmark(input, commandEnd, taskList, storage);
+        case TODO -> handleCreateTodo(input, commandEnd, taskList, storage);
+        case DEADLINE -> handleCreateDeadline(input, commandEnd, taskList, storage);
+        case EVENT -> handleCreateEvent(input, commandEnd, taskList, storage);
+        case DELETE -> handleDelete(input, commandEnd, taskList, storage);
+        case FIND -> handleFind(input, commandEnd, taskList);
+        case DUE -> handleDue(input, commandEnd, taskList);
+        case OVERDUE -> "Here are your overdue tasks:\n" + taskList.overdue(LocalDateTime.now());
+        case STATS -> Metrics.report();
+        case HELP -> HELP_COMMANDS;
+        };
+        storage.save(taskList);
+        if (action == Command.BYE) {
+            storage.flush();
         }
-        storage.write(taskList.getList());
+        REPLY_LATENCIES[action.ordinal()].recordSince(start);
         return response;
     }
 
     /**
-     * Handles marking a task as completed.
+     * Reads the 1-based task index that follows the command.
+     *
+     * @param input the user input
+     * @param commandEnd the end of the command word
+     * @param taskList the task list the index refers to
+     * @return the 0-based index, or one of the negative error codes
+     */
+    private int readTaskIndex(String input, int commandEnd, TaskList taskList) {
+        if (!Lexer.hasMoreTokens(input, commandEnd)) {
+            return NO_INDEX;
+        }
+        int start = commandEnd + 1;
+        long taskId = Lexer.parseInt(input, start, Lexer.tokenEnd(input, start));
+        if (taskId == Lexer.NOT_A_NUMBER) {
+            return NOT_A_NUMBER;
+        }
+        if (taskId < 1 || taskId > taskList.size()) {
+            return NO_SUCH_TASK;
+        }
+        return (int) taskId - 1;
+    }
+
+    /**
+     * Checks whether the command is followed by a selection of several tasks
+     * instead of a single task index.
+     *
+     * @param input the user input
+     * @param commandEnd the end of the command word
+     * @return true if the argument is a list, a range or a predicate
+     */
+    private boolean isSelection(String input, int commandEnd) {
+        if (!Lexer.hasMoreTokens(input, commandEnd)) {
+            return false;
+        }
+        int start = commandEnd + 1;
+        int end = Lexer.tokenEnd(input, start);
+        if (Lexer.matches(input, start, end, DONE) || Lexer.matches(input, start, end, UNDONE)
+                || Lexer.matches(input, start, end, FIND)) {
+            return true;
+        }
+        int comma = input.indexOf(',', start);
+        int dash = input.indexOf('-', start + 1);
+        return comma != -1 && comma < end || dash != -1 && dash < end;
+    }
+
+    /**
+     * Reads a selection of several tasks that follows the command.
+     * <p>The selection is a comma separated list of 1-based indices and ranges,
+     * or {@code done}, {@code undone} or {@code find <keyword>}.</p>
      *
      * @param input the user input
+     * @param commandEnd the end of the command word
+     * @param taskList the task list the selection refers to
+     * @param indices receives the 0-based indices of the selected tasks
+     * @return 0, or one of the negative error codes
+     */
+    private int readSelection(String input, int commandEnd, TaskList taskList, BitSet indices) {
+        int start = commandEnd + 1;
+        int end = Lexer.tokenEnd(input, start);
+        if (Lexer.matches(input, start, end, DONE) || Lexer.matches(input, start, end, UNDONE)) {
+            indices.or(taskList.indicesWithStatus(end - start == DONE.length()));
+        } else if (Lexer.matches(input, start, end, FIND)) {
+            if (!Lexer.hasMoreTokens(input, end)) {
+                return NO_KEYWORD;
+            }
+            indices.or(taskList.indicesOf(input.substring(end + 1, Lexer.tokenEnd(input, end + 1))));
+        } else {
+            int error = readRanges(input, start, end, taskList.size(), indices);
+            if (error < 0) {
+                return error;
+            }
+        }
+        return indices.isEmpty() ? NO_MATCHES : 0;
+    }
+
+    /**
+     * Reads a comma separated list of 1-based indices and ranges such as {@code 3,7,9-20}.
+     *
+     * @param input the user input
+     * @param start the start of the list
+     * @param end the end of the list
+     * @param size the number of tasks in the task list
+     * @param indices receives the 0-based indices in the list
+     * @return 0, or one of the negative error codes
+     */
+    private int readRanges(String input, int start, int end, int size, BitSet indices) {
+        for (int itemStart = start; itemStart <= end;) {
+            int comma = input.indexOf(',', itemStart);
+            int itemEnd = comma == -1 || comma > end ? end : comma;
+            int dash = input.indexOf('-', itemStart + 1);
+            boolean isRange = dash != -1 && dash < itemEnd;
+            long first = Lexer.parseInt(input, itemStart, isRange ? dash : itemEnd);
+            long last = isRange ? Lexer.parseInt(input, dash + 1, itemEnd) : first;
+            if (first == Lexer.NOT_A_NUMBER || last == Lexer.NOT_A_NUMBER) {
+                return NOT_A_NUMBER;
+            }
+            if (first > last) {
+                return INVALID_RANGE;
+            }
+            if (first < 1 || last > size) {
+                return NO_SUCH_TASK;
+            }
+            indices.set((int) first - 1, (int) last);
+            itemStart = itemEnd + 1;
+        }
+        return 0;
+    }
+
+    private String describeIndexError(int error) {
+        return switch (error) {
+        case NO_INDEX -> "OOPS!!! The task index cannot be empty.";
+        case NOT_A_NUMBER -> "OOPS!!! The entered task index is not a number.";
+        case INVALID_RANGE -> "OOPS!!! A range must start at or before its end.";
+        case NO_KEYWORD -> "OOPS!!! Your search query cannot be empty.";
+        case NO_MATCHES -> "No tasks matched, so nothing was changed.";
+        default -> "OOPS!!! Task does not exist";
+        };
+    }
+
+    /**
+     * Handles marking one or more tasks as completed.
+     *
+     * @param input the user input
+     * @param commandEnd the end of the command word
      * @param taskList the task list to modify
+     * @param storage the storage that records the change
      * @return the chatbot response message
      */
-    private String handleMark(String input, TaskList taskList) {
-        String[] params = input.split(" ");
-        if (params.length <= 1) {
-            return "OOPS!!! The task index cannot be empty.";
+    private String handleMark(String input, int commandEnd, TaskList taskList, Storage storage) {
+        if (isSelection(input, commandEnd)) {
+            BitSet indices = new BitSet();
+            int error = readSelection(input, commandEnd, taskList, indices);
+            if (error < 0) {
+                return describeIndexError(error);
+            }
+            List<Task> tasks = taskList.markDone(indices);
+            storage.recordMarks(tasks);
+            return "Nice! I've marked these " + tasks.size() + " tasks as done:\n"
+                    + taskList.listAsString(tasks);
         }
-        try {
-            int taskId = Integer.parseInt(params[1]);
-            taskList.markDone(taskId - 1);
-            return "Nice! I've marked this task as done:\n"
-                    + taskList.getTask(taskId - 1);
-        } catch (NumberFormatException e) {
-            return "OOPS!!! The entered task index is not a number.";
-        } catch (NullPointerException | IndexOutOfBoundsException err) {
-            return "OOPS!!! Task does not exist";
+        int index = readTaskIndex(input, commandEnd, taskList);
+        if (index < 0) {
+            return describeIndexError(index);
         }
+        Task task = taskList.markDone(index);
+        storage.recordMark(task);
+        return "Nice! I've marked this task as done:\n"
+                + task;
     }
 
     /**
-     * Handles unmarking a task (marking it as not done).
+     * Handles unmarking one or more tasks (marking them as not done).
      *
      * @param input the user input
+     * @param commandEnd the end of the command word
      * @param taskList the task list to modify
+     * @param storage the storage that records the change
      * @return the chatbot response message
      */
-    private String handleUnmark(String input, TaskList taskList) {
-        String[] params = input.split(" ");
-        if (params.length <= 1) {
-            return "OOPS!!! The task index cannot be empty.";
+    private String handleUnmark(String input, int commandEnd, TaskList taskList, Storage storage) {
+        if (isSelection(input, commandEnd)) {
+            BitSet indices = new BitSet();
+            int error = readSelection(input, commandEnd, taskList, indices);
+            if (error < 0) {
+                return describeIndexError(error);
+            }
+            List<Task> tasks = taskList.markUndone(indices);
+            storage.recordMarks(tasks);
+            return "OK, I've marked these " + tasks.size() + " tasks as not done yet:\n"
+                    + taskList.listAsString(tasks);
         }
-        try {
-            int taskId = Integer.parseInt(params[1]);
-            taskList.markUndone(taskId - 1);
-            return "OK, I've marked this task as not done yet:\n"
-                    + taskList.getTask(taskId - 1);
-        } catch (NumberFormatException e) {
-            return "OOPS!!! The entered task index is not a number.";
-        } catch (NullPointerException | IndexOutOfBoundsException err) {
-            return "OOPS!!! Task does not exist";
+        int index = readTaskIndex(input, commandEnd, taskList);
+        if (index < 0) {
+            return describeIndexError(index);
         }
+        Task task = taskList.markUndone(index);
+        storage.recordMark(task);
+        return "OK, I've marked this task as not done yet:\n"
+                + task;
     }
 
     /**
      * Handles creating and adding a new Todo task.
      *
      * @param input the user input
+     * @param commandEnd the end of the command word
      * @param taskList the task list to modify
+     * @param storage the storage that records the change
      * @return the chatbot response message
      */
-    private String handleCreateTodo(String input, TaskList taskList) {
-        String[] params = input.split(" ", 2);
-        if (params.length <= 1) {
+    private String handleCreateTodo(String input, int commandEnd, TaskList taskList, Storage storage) {
+        if (commandEnd == input.length()) {
             return "OOPS!!! The description of a todo cannot be empty.";
         }
-        Todos todo = new Todos(params[1]);
+        Todos todo = new Todos(input.substring(commandEnd + 1));
         int size = taskList.add(todo);
+        storage.recordAdd(todo);
         return "Got it. I've added this task:\n" + todo + "\nNow you have "
                 + size + " tasks in the list";
     }
@@ -173,27 +393,31 @@ public class Parser {
      * Handles creating and adding a new Deadline task.
      *
      * @param input the user input
+     * @param commandEnd the end of the command word
      * @param taskList the task list to modify
+     * @param storage the storage that records the change
      * @return the chatbot response message
      */
-    private String handleCreateDeadline(String input, TaskList taskList) {
-        String[] params = input.split(" ", 2);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
-        if (params.length <= 1 || !params[1].contains("/by ")) {
+    private String handleCreateDeadline(String input, int commandEnd, TaskList taskList, Storage storage) {
+        int by = commandEnd == input.length() ? -1 : input.indexOf("/by ", commandEnd + 1);
+        if (by == -1) {
             return "OOPS!!! The description/due date of a deadline cannot be empty.";
         }
-        String[] subParam = params[1].split("/by ");
+        int dueStart = by + "/by ".length();
+        int dueEnd = input.indexOf("/by ", dueStart);
         try {
-            LocalDateTime dueDate = LocalDateTime.parse(subParam[1], formatter);
+            LocalDateTime dueDate = LocalDateTime.parse(
+                    input.substring(dueStart, dueEnd == -1 ? input.length() : dueEnd), FORMATTER);
             if (dueDate.isBefore(LocalDateTime.now())) {
                 return "Invalid input! Deadline is already past";
             }
-            Deadlines deadline = new Deadlines(dueDate, subParam[0]);
+            Deadlines deadline = new Deadlines(dueDate, input.substring(commandEnd + 1, by));
             int size = taskList.add(deadline);
+            storage.recordAdd(deadline);
             return "Got it. I've added this task:\n" + deadline + "\nNow you have "
                     + size + " tasks in the list\n";
         } catch (DateTimeParseException e) {
-            return "Invalid date/time provided: Please provide in the format dd/mm/yyyy HHmm";
+            return INVALID_DATE;
         }
     }
 
@@ -201,75 +425,125 @@ public class Parser {
      * Handles creating and adding a new Event task.
      *
      * @param input the user input
+     * @param commandEnd the end of the command word
      * @param taskList the task list to modify
+     * @param storage the storage that records the change
      * @return the chatbot response message
      */
-    private String handleCreateEvent(String input, TaskList taskList) {
-        String[] params = input.split(" ", 2);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
-        if (params.length <= 1 || !params[1].contains("/from ")
-                || !params[1].contains("/to ")) {
+    private String handleCreateEvent(String input, int commandEnd, TaskList taskList, Storage storage) {
+        int argStart = commandEnd + 1;
+        int from = commandEnd == input.length() ? -1 : input.indexOf("/from ", argStart);
+        if (from == -1 || input.indexOf("/to ", argStart) == -1) {
             return "OOPS!!! The description/start date/end date of an event cannot be empty.";
         }
-        String[] split = params[1].split("/from ");
-        String description = split[0];
-        String[] subParam = split[1].split(" /to ");
+        int startBegin = from + "/from ".length();
+        int nextFrom = input.indexOf("/from ", startBegin);
+        int segmentEnd = nextFrom == -1 ? input.length() : nextFrom;
+        int to = input.indexOf(" /to ", startBegin);
+        if (to == -1 || to + " /to ".length() > segmentEnd) {
+            return INVALID_DATE;
+        }
+        int endBegin = to + " /to ".length();
+        int nextTo = input.indexOf(" /to ", endBegin);
+        int endEnd = nextTo == -1 || nextTo > segmentEnd ? segmentEnd : nextTo;
         try {
-            LocalDateTime start = LocalDateTime.parse(subParam[0], formatter);
-            LocalDateTime end = LocalDateTime.parse(subParam[1], formatter);
+            LocalDateTime start = LocalDateTime.parse(input.substring(startBegin, to), FORMATTER);
+            LocalDateTime end = LocalDateTime.parse(input.substring(endBegin, endEnd), FORMATTER);
             if (end.isBefore(LocalDateTime.now())) {
                 return "Invalid input! Event is already over";
             }
             if (start.isAfter(end)) {
                 return "Invalid input! Start date must be before end date";
             }
-            Events event = new Events(description, start, end);
+            Events event = new Events(input.substring(argStart, from), start, end);
             int size = taskList.add(event);
+            storage.recordAdd(event);
             return "Got it. I've added this task:\n" + event + "\nNow you have "
                     + size + " tasks in the list";
         } catch (DateTimeParseException e) {
-            return "Invalid date/time provided: Please provide in the format dd/mm/yyyy HHmm";
+            return INVALID_DATE;
         }
     }
 
     /**
-     * Handles deleting a task from the list.
+     * Handles deleting one or more tasks from the list.
      *
      * @param input the user input
+     * @param commandEnd the end of the command word
      * @param taskList the task list to modify
+     * @param storage the storage that records the change
      * @return the chatbot response message
      */
-    private String handleDelete(String input, TaskList taskList) {
-        String[] params = input.split(" ");
-        if (params.length <= 1) {
-            return "OOPS!!! The task index cannot be empty.";
+    private String handleDelete(String input, int commandEnd, TaskList taskList, Storage storage) {
+        if (isSelection(input, commandEnd)) {
+            BitSet indices = new BitSet();
+            int error = readSelection(input, commandEnd, taskList, indices);
+            if (error < 0) {
+                return describeIndexError(error);
+            }
+            List<Task> removed = taskList.removeAll(indices);
+            storage.recordDeletes(removed);
+            return "Noted. I've removed these " + removed.size() + " tasks:\n"
+                    + taskList.listAsString(removed)
+                    + "Now you have " + taskList.size() + " tasks in the list";
         }
-        try {
-            int taskId = Integer.parseInt(params[1]);
-            Task toRemove = taskList.getTask(taskId - 1);
-            int size = taskList.remove(toRemove);
-            return "Noted. I've removed this task: " + toRemove
-                    + "\nNow you have " + size + " tasks in the list";
-        } catch (NumberFormatException e) {
-            return "OOPS!!! The entered task index is not a number.";
-        } catch (NullPointerException | IndexOutOfBoundsException err) {
-            return "OOPS!!! Task does not exist";
+        int index = readTaskIndex(input, commandEnd, taskList);
+        if (index < 0) {
+            return describeIndexError(index);
         }
+        Task removed = taskList.remove(index);
+        storage.recordDelete(removed);
+        return "Noted. I've removed this task: " + removed
+                + "\nNow you have " + taskList.size() + " tasks in the list";
     }
 
     /**
      * Handles finding tasks that match a search query.
      *
      * @param input the user input
+     * @param commandEnd the end of the command word
      * @param taskList the task list to search
      * @return the chatbot response message
      */
-    private String handleFind(String input, TaskList taskList) {
-        String[] params = input.split(" ");
-        if (params.length <= 1) {
+    private String handleFind(String input, int commandEnd, TaskList taskList) {
+        if (!Lexer.hasMoreTokens(input, commandEnd)) {
             return "OOPS!!! Your search query cannot be empty.";
         }
-        String result = taskList.filter(params[1]);
+        int start = commandEnd + 1;
+        String result = taskList.filter(input.substring(start, Lexer.tokenEnd(input, start)));
         return "Here are the matching tasks in your list:\n" + result;
     }
+
+    /**
+     * Handles listing deadlines due by a date-time or within a window.
+     * <p>A date-time is made of two tokens, a date and a time.</p>
+     *
+     * @param input the user input
+     * @param commandEnd the end of the command word
+     * @param taskList the task list to search
+     * @return the chatbot response message
+     */
+    private String handleDue(String input, int commandEnd, TaskList taskList) {
+        int tokens = Lexer.countTokens(input);
+        if (tokens != 3 && tokens != 5) {
+            return "OOPS!!! Please provide one date-time, or a start and end date-time.";
+        }
+        try {
+            int fromStart = commandEnd + 1;
+            int fromEnd = Lexer.tokenEnd(input, Lexer.tokenEnd(input, fromStart) + 1);
+            LocalDateTime from = LocalDateTime.parse(input.substring(fromStart, fromEnd), FORMATTER);
+            if (tokens == 3) {
+                return "Here are the deadlines due by then:\n" + taskList.dueBefore(from);
+            }
+            int toStart = fromEnd + 1;
+            int toEnd = Lexer.tokenEnd(input, Lexer.tokenEnd(input, toStart) + 1);
+            LocalDateTime to = LocalDateTime.parse(input.substring(toStart, toEnd), FORMATTER);
+            if (from.isAfter(to)) {
+                return "Invalid input! Start date must be before end date";
+            }
+            return "Here are the deadlines due in that period:\n" + taskList.dueBetween(from, to);
+        } catch (DateTimeParseException e) {
+            return INVALID_DATE;
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package barcelona.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import barcelona.ui.Ui;
+
+/**
+ * Runs storage writes on a dedicated thread so callers never wait for disk I/O.
+ * <p>
+ * Operations are executed in the order they were submitted. Whatever piles up
+ * while the writer is busy is handled as one batch: only the newest snapshot in
+ * a batch is written, since it already contains the changes of the older ones,
+ * and journal records are flushed together once per batch (group commit).
+ * </p>
+ */
+class BackgroundWriter {
+    /**
+     * A unit of storage work executed on the writer thread
+     */
+    interface Operation {
+        void run() throws IOException;
+    }
+
+    private record Pending(Operation operation, boolean isSnapshot) {
+    }
+
+    private final ArrayList<Pending> queue = new ArrayList<>();
+    private final Operation afterBatch;
+    private final Ui ui;
+    private final Thread thread;
+    private boolean isBusy;
+    private boolean isClosed;
+    private long snapshotsRequested;
+    private long snapshotsWritten;
+    private long batches;
+
+    /**
+     * Starts the writer thread
+     * @param afterBatch - operation run after every batch, e.g. flushing the journal
+     * @param ui - logger to log any errors
+     */
+    BackgroundWriter(Operation afterBatch, Ui ui) {
+        this.afterBatch = afterBatch;
+        this.ui = ui;
+        this.thread = new Thread(this::runLoop, "barcelona-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues an operation for the writer thread
+     * @param operation - storage work to run
+     * @param isSnapshot - true if the operation rewrites the whole task file and
+     *                   may be skipped when a newer snapshot follows it
+     */
+    synchronized void submit(Operation operation, boolean isSnapshot) {
+        assert !isClosed : "writer is closed";
+        queue.add(new Pending(operation, isSnapshot));
+        if (isSnapshot) {
+            snapshotsRequested++;
+        }
+        notifyAll();
+    }
+
+    private void runLoop() {
+        while (true) {
+            ArrayList<Pending> batch;
+            synchronized (this) {
+                while (queue.isEmpty() && !isClosed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(queue);
+                queue.clear();
+                isBusy = true;
+            }
+            int written = runBatch(batch);
+            synchronized (this) {
+                snapshotsWritten += written;
+                batches++;
+                isBusy = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of operations, skipping snapshots superseded by a later one
+     * @return number of snapshots actually written
+     */
+    private int runBatch(ArrayList<Pending> batch) {
+        int lastSnapshot = -1;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).isSnapshot()) {
+                lastSnapshot = i;
+            }
+        }
+        int written = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            if (pending.isSnapshot() && i != lastSnapshot) {
+                continue;
+            }
+            run(pending.operation());
+            written += pending.isSnapshot() ? 1 : 0;
+        }
+        run(afterBatch);
+        return written;
+    }
+
+    private void run(Operation operation) {
+        try {
+            operation.run();
+        } catch (IOException e) {
+            ui.log("error writing to file");
+        }
+    }
+
+    /**
+     * Blocks until every submitted operation has been written
+     */
+    synchronized void flush() {
+        while ((!queue.isEmpty() || isBusy) && thread.isAlive()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes all pending operations and stops the writer thread
+     */
+    void close() {
+        synchronized (this) {
+            isClosed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Summarises how many snapshot writes were saved by coalescing
+     * @return human readable writer statistics
+     */
+    synchronized String getStats() {
+        return snapshotsRequested + " snapshot requests, " + snapshotsWritten + " written, "
+                + (snapshotsRequested - snapshotsWritten) + " coalesced, " + batches + " batches";
+    }
+}
@@ -0,0 +1,279 @@
+package barcelona.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CheckedOutputStream;
+
+import barcelona.task.Deadlines;
+import barcelona.task.Events;
+import barcelona.task.Task;
+import barcelona.task.Todos;
+import barcelona.ui.Ui;
+
+/**
+ * Reads and writes the binary snapshot format.
+ * <p>
+ * The file starts with a fixed header: the magic bytes {@code BCLN}, a format
+ * version byte and the number of tasks as an int. Each task follows as
+ * </p>
+ * <ul>
+ *   <li>a type tag byte ({@code T}, {@code D} or {@code E})</li>
+ *   <li>a done byte ({@code 0} or {@code 1})</li>
+ *   <li>the task ID as a long</li>
+ *   <li>one long per date (deadline, or event start and end) in minutes since the epoch</li>
+ *   <li>the description as an int length followed by its UTF-8 bytes</li>
+ * </ul>
+ * <p>
+ * The last record is followed by the {@link SnapshotChecksum} of everything
+ * before it, as an int.
+ * </p>
+ * <p>
+ * Nothing has to be split or parsed with a {@code DateTimeFormatter}, and the
+ * file is read through a memory-mapped buffer. Version 2 files, written
+ * without a checksum, and version 1 files, written before tasks had IDs, are
+ * still read.
+ * </p>
+ */
+class BinaryCodec {
+    static final byte[] MAGIC = {'B', 'C', 'L', 'N'};
+    private static final byte VERSION = 3;
+    private static final byte VERSION_WITHOUT_CHECKSUM = 2;
+    private static final byte VERSION_WITHOUT_IDS = 1;
+
+    /**
+     * Checks whether a file starts with the binary format's magic bytes
+     * @param file - file to check
+     * @return true if the file is a binary snapshot
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isBinary(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(MAGIC, in.readNBytes(MAGIC.length));
+        }
+    }
+
+    /**
+     * Writes the tasks to the file in binary format
+     * @param file - file to write to
+     * @param tasklist - tasks to write
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, ArrayList<Task> tasklist) throws IOException {
+        write(file, tasklist, new StatusIndex(true));
+    }
+
+    /**
+     * Writes the tasks to the file in binary format and records where their done bytes are
+     * @param file - file to write to
+     * @param tasklist - tasks to write
+     * @param statusIndex - empty index that receives the offset of every done byte and of the checksum
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, ArrayList<Task> tasklist, StatusIndex statusIndex) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)), new Adler32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(tasklist.size());
+            for (Task task : tasklist) {
+                writeTask(out, task, statusIndex);
+            }
+            long checksum = checked.getChecksum().getValue();
+            statusIndex.setChecksum(out.size(), out.size(), checksum);
+            out.writeInt((int) checksum);
+        }
+    }
+
+    /**
+     * Checks whether a binary snapshot ends with a checksum
+     * @param buffer - contents of the file
+     * @return true if the file has a version with a checksum and room for it
+     */
+    static boolean hasChecksum(ByteBuffer buffer) {
+        return buffer.limit() >= MAGIC.length + 1 + 2 * Integer.BYTES && buffer.get(MAGIC.length) == VERSION;
+    }
+
+    private static void writeTask(DataOutputStream out, Task task, StatusIndex statusIndex) throws IOException {
+        statusIndex.add(task.getId(), out.size() + 1);
+        if (task instanceof Deadlines deadline) {
+            out.writeByte('D');
+            out.writeByte(task.isDone() ? 1 : 0);
+            out.writeLong(task.getId());
+            out.writeLong(toEpochMinute(deadline.getDeadline()));
+        } else if (task instanceof Events event) {
+            out.writeByte('E');
+            out.writeByte(task.isDone() ? 1 : 0);
+            out.writeLong(task.getId());
+            out.writeLong(toEpochMinute(event.getStart()));
+            out.writeLong(toEpochMinute(event.getEnd()));
+        } else {
+            out.writeByte('T');
+            out.writeByte(task.isDone() ? 1 : 0);
+            out.writeLong(task.getId());
+        }
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(description.length);
+        out.write(description);
+    }
+
+    /**
+     * Reads all tasks from a binary snapshot.
+     * <p>
+     * A truncated or corrupted task cannot be skipped since the position of
+     * the next one is unknown, so reading stops there and the tasks read so
+     * far are returned.
+     * </p>
+     *
+     * @param file - binary snapshot to read
+     * @param ui - logger to log corrupted tasks
+     * @return tasks in the order they were written
+     * @throws IOException if the file cannot be read
+     */
+    static ArrayList<Task> read(File file, Ui ui) throws IOException {
+        return read(file, ui, LoadBatches.NONE);
+    }
+
+    /**
+     * Reads all tasks from a binary snapshot, handing them over in batches as they are decoded
+     * @param file - binary snapshot to read
+     * @param ui - logger to log corrupted tasks
+     * @param batches - receives the decoded tasks in batches
+     * @return tasks in the order they were written
+     * @throws IOException if the file cannot be read
+     */
+    static ArrayList<Task> read(File file, Ui ui, LoadBatches batches) throws IOException {
+        ArrayList<Task> taskList = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.position(MAGIC.length);
+            byte version = buffer.get();
+            if (version != VERSION && version != VERSION_WITHOUT_CHECKSUM && version != VERSION_WITHOUT_IDS) {
+                throw new IOException("unsupported binary format version");
+            }
+            boolean hasIds = version != VERSION_WITHOUT_IDS;
+            int count = buffer.getInt();
+            taskList.ensureCapacity(count);
+            for (int i = 1; i <= count; i++) {
+                Task task = readTask(buffer, hasIds);
+                if (task == null) {
+                    ui.log("BINARY[" + i + "] is corrupted");
+                    break;
+                }
+                taskList.add(task);
+                batches.offer(taskList);
+            }
+        } catch (BufferUnderflowException e) {
+            ui.log("BINARY[" + (taskList.size() + 1) + "] is truncated");
+        }
+        batches.finish(taskList);
+        return taskList;
+    }
+
+    /**
+     * Builds the index of the done bytes of a binary snapshot without decoding its tasks
+     * @param file - binary snapshot to scan
+     * @return the index, which is not usable if the file has no IDs or is corrupted
+     * @throws IOException if the file cannot be read
+     */
+    static StatusIndex scan(File file) throws IOException {
+        StatusIndex index = new StatusIndex(true);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.position(MAGIC.length);
+            byte version = buffer.get();
+            if (version != VERSION && version != VERSION_WITHOUT_CHECKSUM) {
+                index.invalidate();
+                return index;
+            }
+            if (hasChecksum(buffer)) {
+                int covered = buffer.limit() - Integer.BYTES;
+                index.setChecksum(covered, covered, Integer.toUnsignedLong(buffer.getInt(covered)));
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count && index.isUsable(); i++) {
+                byte type = buffer.get();
+                int flag = buffer.position();
+                buffer.get();
+                index.add(buffer.getLong(), flag);
+                int dates = switch (type) {
+                case 'T' -> 0;
+                case 'D' -> 1;
+                case 'E' -> 2;
+                default -> -1;
+                };
+                if (dates < 0) {
+                    index.invalidate();
+                    break;
+                }
+                buffer.position(buffer.position() + dates * Long.BYTES);
+                int length = buffer.getInt();
+                buffer.position(buffer.position() + length);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            index.invalidate();
+        }
+        return index;
+    }
+
+    private static Task readTask(MappedByteBuffer buffer, boolean hasIds) {
+        byte type = buffer.get();
+        boolean isDone = buffer.get() == 1;
+        long id = hasIds ? buffer.getLong() : 0;
+        Task task;
+        switch (type) {
+        case 'T' -> task = new Todos(readDescription(buffer));
+        case 'D' -> {
+            LocalDateTime deadline = fromEpochMinute(buffer.getLong());
+            task = new Deadlines(deadline, readDescription(buffer));
+        }
+        case 'E' -> {
+            LocalDateTime start = fromEpochMinute(buffer.getLong());
+            LocalDateTime end = fromEpochMinute(buffer.getLong());
+            task = new Events(readDescription(buffer), start, end);
+        }
+        default -> {
+            return null;
+        }
+        }
+        if (isDone) {
+            task.markAsDone();
+        }
+        task.setId(id);
+        return task;
+    }
+
+    private static String readDescription(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toEpochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+}
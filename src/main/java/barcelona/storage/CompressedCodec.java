@@ -0,0 +1,102 @@
+package barcelona.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import barcelona.task.Task;
+
+/**
+ * Reads and writes the compressed snapshot format.
+ * <p>
+ * The file is the text format, one task per line, compressed with gzip. The
+ * type tags, separators and date strings that repeat on every line compress
+ * well. Both directions stream through a small buffer, so neither the file nor
+ * its uncompressed text is ever held in memory as a whole.
+ * </p>
+ * <p>
+ * There is no {@link SnapshotChecksum} trailer, since gzip already ends the
+ * file with a CRC-32 and the length of the text, which are checked when the
+ * last line is read. For the same reason, done flags cannot be patched in
+ * place and every change rewrites the file.
+ * </p>
+ */
+class CompressedCodec {
+    /** Magic bytes of a gzip stream */
+    static final byte[] MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Checks whether a file starts with gzip's magic bytes
+     * @param file - file to check
+     * @return true if the file is a compressed snapshot
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isCompressed(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] header = in.readNBytes(MAGIC.length);
+            return header.length == MAGIC.length && header[0] == MAGIC[0] && header[1] == MAGIC[1];
+        }
+    }
+
+    /**
+     * Writes the tasks to the file as compressed text lines
+     * @param file - file to write to
+     * @param tasklist - tasks to write
+     * @param charset - charset of the text lines
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, ArrayList<Task> tasklist, Charset charset) throws IOException {
+        byte[] separator = System.lineSeparator().getBytes(charset);
+        try (OutputStream out = new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE)) {
+            for (Task task : tasklist) {
+                out.write(Storage.exportWithId(task).getBytes(charset));
+                out.write(separator);
+            }
+        }
+    }
+
+    /**
+     * Opens a compressed snapshot for reading line by line
+     * @param file - compressed snapshot
+     * @param charset - charset of the text lines
+     * @return reader of the uncompressed text, which throws {@link ZipException} or
+     *         {@link EOFException} when the file is damaged or truncated
+     * @throws IOException if the file cannot be read
+     */
+    static BufferedReader open(File file, Charset charset) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), charset), BUFFER_SIZE);
+    }
+
+    /**
+     * Checks a compressed snapshot against the CRC-32 and length in its gzip trailer
+     * @param file - snapshot to check
+     * @return {@link SnapshotChecksum.Status#VALID} if the whole file decompresses and matches its trailer
+     * @throws IOException if the file cannot be read
+     */
+    static SnapshotChecksum.Status verify(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // only the trailer check at the end matters
+            }
+            return SnapshotChecksum.Status.VALID;
+        } catch (ZipException | EOFException e) {
+            return SnapshotChecksum.Status.MISMATCH;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package barcelona.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import barcelona.metrics.Metrics;
+
+/**
+ * Append-only log of task list mutations kept next to the snapshot file.
+ * <p>
+ * Each mutation is stored as a single line so that persisting a change costs
+ * one small append instead of a rewrite of the whole task file. Records use the
+ * same {@code " | "} separator as the snapshot format:
+ * </p>
+ * <ul>
+ *   <li>{@code A | <id> | <exported task>} – a task was added to the end of the list</li>
+ *   <li>{@code MI | <id>} – the task with the ID was marked as done</li>
+ *   <li>{@code UI | <id>} – the task with the ID was marked as not done</li>
+ *   <li>{@code XI | <id>} – the task with the ID was deleted</li>
+ * </ul>
+ * <p>
+ * Journals written before tasks had IDs address tasks by list index instead,
+ * with {@code M}, {@code U} and {@code X} records. These are still replayed.
+ * </p>
+ */
+class Journal {
+    static final String ADD = "A";
+    static final String MARK = "MI";
+    static final String UNMARK = "UI";
+    static final String DELETE = "XI";
+    static final String MARK_AT = "M";
+    static final String UNMARK_AT = "U";
+    static final String DELETE_AT = "X";
+    static final String SEPARATOR = " | ";
+
+    private final File file;
+    private FileOutputStream stream;
+    private BufferedWriter writer;
+    /** Length of the journal when its records were last flushed */
+    private long flushedLength;
+
+    /**
+     * Creates a journal backed by the given file
+     * @param filePath - path to the journal file
+     */
+    Journal(String filePath) {
+        this.file = new File(filePath);
+    }
+
+    /**
+     * Reads every record currently in the journal
+     * @return records in the order they were appended
+     * @throws IOException if the journal exists but cannot be read
+     */
+    ArrayList<String> readAll() throws IOException {
+        ArrayList<String> records = new ArrayList<>();
+        if (!file.exists()) {
+            return records;
+        }
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            for (String line; (line = br.readLine()) != null;) {
+                if (!line.isEmpty()) {
+                    records.add(line);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Appends a record to the journal. The record is buffered until {@link #flush()}.
+     * @param type - record type, one of the constants in this class
+     * @param payload - exported task or task index
+     * @throws IOException if the journal cannot be opened
+     */
+    void append(String type, String payload) throws IOException {
+        if (writer == null) {
+            stream = new FileOutputStream(file, true);
+            flushedLength = stream.getChannel().position();
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        }
+        writer.write(type + SEPARATOR + payload);
+        writer.newLine();
+    }
+
+    /**
+     * Writes buffered records to the journal file
+     * @return number of bytes written since the last flush
+     * @throws IOException if the journal cannot be written
+     */
+    long flush() throws IOException {
+        if (writer == null) {
+            return 0;
+        }
+        writer.flush();
+        return countFlushedBytes();
+    }
+
+    /**
+     * Flushes buffered records and forces them to the storage device
+     * @return number of bytes written since the last flush
+     * @throws IOException if the journal cannot be written
+     */
+    long sync() throws IOException {
+        if (writer == null) {
+            return 0;
+        }
+        writer.flush();
+        long bytes = countFlushedBytes();
+        stream.getFD().sync();
+        return bytes;
+    }
+
+    private long countFlushedBytes() throws IOException {
+        long length = stream.getChannel().position();
+        long bytes = length - flushedLength;
+        Metrics.addBytesWritten(bytes);
+        flushedLength = length;
+        return bytes;
+    }
+
+    /**
+     * Deletes the journal file once its records are part of a snapshot
+     * @throws IOException if the journal file cannot be removed
+     */
+    void delete() throws IOException {
+        close();
+        if (file.exists() && !file.delete()) {
+            throw new IOException("could not delete journal");
+        }
+    }
+
+    boolean exists() {
+        return file.exists();
+    }
+
+    void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            stream = null;
+        }
+    }
+}
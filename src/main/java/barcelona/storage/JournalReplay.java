@@ -0,0 +1,143 @@
+package barcelona.storage;
+
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import barcelona.exception.FileCorruptedException;
+import barcelona.task.Task;
+import barcelona.task.TaskList;
+
+/**
+ * Applies journal records to the tasks loaded from a snapshot.
+ * <p>
+ * Records that address tasks by ID are resolved through a map from ID to
+ * task, and deleted tasks are only flagged and dropped in one pass at the end,
+ * so replaying a journal takes O(n + records) instead of shifting the list for
+ * every deletion.
+ * </p>
+ * <p>
+ * A snapshot or journal written before tasks had IDs is followed by records
+ * that refer to the IDs {@link TaskList#assignIds} handed out when that session
+ * loaded it. The same IDs are assigned here, at the first record that carries
+ * an ID, so those records resolve to the same tasks.
+ * </p>
+ */
+class JournalReplay {
+    private final ArrayList<Task> tasks;
+    private final Set<Task> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
+    private HashMap<Long, Task> byId;
+
+    /**
+     * Creates a replay that changes the given tasks in place
+     * @param tasks - tasks loaded from the snapshot
+     */
+    JournalReplay(ArrayList<Task> tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Applies a single journal record
+     * @return false if the record is corrupted and was skipped
+     */
+    boolean apply(String record) {
+        String[] params = record.split(" \\| ", 2);
+        if (params.length != 2) {
+            return false;
+        }
+        try {
+            switch (params[0]) {
+            case Journal.ADD -> add(Storage.parseTask(params[1]));
+            case Journal.MARK, Journal.UNMARK, Journal.DELETE -> {
+                Task task = byId().get(Long.parseLong(params[1]));
+                if (task == null) {
+                    return false;
+                }
+                applyById(params[0], task);
+            }
+            case Journal.MARK_AT, Journal.UNMARK_AT, Journal.DELETE_AT -> {
+                return applyAt(params[0], Integer.parseInt(params[1]));
+            }
+            default -> {
+                return false;
+            }
+            }
+            return true;
+        } catch (FileCorruptedException | DateTimeParseException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Drops the deleted tasks from the list
+     */
+    void finish() {
+        if (!deleted.isEmpty()) {
+            tasks.removeIf(deleted::contains);
+            deleted.clear();
+        }
+    }
+
+    private void add(Task task) {
+        if (task.getId() <= 0) {
+            tasks.add(task);
+            byId = null;
+            return;
+        }
+        HashMap<Long, Task> tasksById = byId();
+        if (tasksById.containsKey(task.getId())) {
+            tasks.add(task);
+            byId = null;
+            return;
+        }
+        tasks.add(task);
+        tasksById.put(task.getId(), task);
+    }
+
+    private void applyById(String type, Task task) {
+        switch (type) {
+        case Journal.MARK -> task.markAsDone();
+        case Journal.UNMARK -> task.markAsUndone();
+        default -> {
+            deleted.add(task);
+            byId.remove(task.getId());
+        }
+        }
+    }
+
+    private boolean applyAt(String type, int index) {
+        finish();
+        if (index < 0 || index >= tasks.size()) {
+            return false;
+        }
+        switch (type) {
+        case Journal.MARK_AT -> tasks.get(index).markAsDone();
+        case Journal.UNMARK_AT -> tasks.get(index).markAsUndone();
+        default -> {
+            Task removed = tasks.remove(index);
+            if (byId != null) {
+                byId.remove(removed.getId());
+            }
+        }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the map from ID to task, giving the tasks their IDs the first time
+     */
+    private HashMap<Long, Task> byId() {
+        if (byId == null) {
+            finish();
+            TaskList.assignIds(tasks);
+            byId = new HashMap<>();
+            for (Task task : tasks) {
+                byId.put(task.getId(), task);
+            }
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,63 @@
+package barcelona.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import barcelona.task.Task;
+
+/**
+ * Hands the tasks of a list that is being loaded to a consumer in batches, as the list grows.
+ * <p>
+ * Each batch is a copy, so the consumer may keep it or pass it to another
+ * thread while the loader keeps appending to its list.
+ * </p>
+ */
+class LoadBatches {
+    /** Batches that nobody consumes */
+    static final LoadBatches NONE = new LoadBatches(Integer.MAX_VALUE, batch -> {
+    });
+
+    private final int size;
+    private final Consumer<List<Task>> consumer;
+    private int delivered;
+
+    /**
+     * @param size - number of tasks per batch, except for the last one
+     * @param consumer - receives every batch, in file order, on the loading thread
+     */
+    LoadBatches(int size, Consumer<List<Task>> consumer) {
+        assert size > 0;
+        this.size = size;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Delivers the next batch once enough tasks were added to the list since the last one
+     * @param tasks - tasks loaded so far
+     */
+    void offer(ArrayList<Task> tasks) {
+        if (tasks.size() - delivered >= size) {
+            deliver(tasks);
+        }
+    }
+
+    /**
+     * Delivers the tasks added since the last batch, if any
+     * @param tasks - all loaded tasks
+     */
+    void finish(ArrayList<Task> tasks) {
+        if (this == NONE) {
+            return;
+        }
+        while (tasks.size() > delivered) {
+            deliver(tasks);
+        }
+    }
+
+    private void deliver(ArrayList<Task> tasks) {
+        int end = (int) Math.min(tasks.size(), (long) delivered + size);
+        consumer.accept(List.copyOf(tasks.subList(delivered, end)));
+        delivered = end;
+    }
+}
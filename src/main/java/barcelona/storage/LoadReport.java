@@ -0,0 +1,73 @@
+package barcelona.storage;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import barcelona.ui.Ui;
+
+/**
+ * Collects the corrupted lines of a load, to log them as one summary instead of one message per line.
+ * <p>
+ * Only the first {@link #MAX_LISTED} line numbers are kept, so a badly damaged
+ * file does not fill memory with them.
+ * </p>
+ */
+class LoadReport {
+    static final int MAX_LISTED = 10;
+
+    private final String filePath;
+    private final ArrayList<Integer> listed = new ArrayList<>();
+    private int corruptedCount;
+
+    /**
+     * @param filePath - file that is loaded, named in the summary
+     */
+    LoadReport(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Records a line that could not be parsed; lines must be recorded in file order
+     * @param lineNum - 1-based line number
+     */
+    void corrupted(int lineNum) {
+        corruptedCount++;
+        if (listed.size() < MAX_LISTED) {
+            listed.add(lineNum);
+        }
+    }
+
+    int getCorruptedCount() {
+        return corruptedCount;
+    }
+
+    /**
+     * Builds the summary, e.g. {@code loaded 999,812 tasks from data/duke.txt, 188 corrupted: lines 14, 902, ...}
+     * @param loaded - number of tasks loaded
+     */
+    String summary(int loaded) {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT, "loaded %,d tasks from %s",
+                loaded, filePath));
+        if (corruptedCount == 0) {
+            return summary.toString();
+        }
+        summary.append(String.format(Locale.ROOT, ", %,d corrupted: line", corruptedCount))
+                .append(corruptedCount == 1 ? " " : "s ");
+        for (int i = 0; i < listed.size(); i++) {
+            summary.append(i == 0 ? "" : ", ").append(listed.get(i));
+        }
+        return summary.append(corruptedCount > listed.size() ? ", ..." : "").toString();
+    }
+
+    /**
+     * Logs the summary, as a warning if any line was corrupted and as debug output otherwise
+     * @param ui - logger
+     * @param loaded - number of tasks loaded
+     */
+    void log(Ui ui, int loaded) {
+        Ui.Level level = corruptedCount == 0 ? Ui.Level.DEBUG : Ui.Level.WARN;
+        if (ui.isEnabled(level)) {
+            ui.log(level, summary(loaded));
+        }
+    }
+}
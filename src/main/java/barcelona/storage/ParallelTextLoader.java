@@ -0,0 +1,162 @@
+package barcelona.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import barcelona.exception.FileCorruptedException;
+import barcelona.task.Task;
+import barcelona.ui.Ui;
+
+/**
+ * Parses large text task files on the common fork-join pool.
+ * <p>
+ * The file is memory-mapped and split in halves at newline boundaries until
+ * each chunk is small enough to parse on its own. Chunks are parsed in
+ * parallel and joined back in file order, so the resulting list and the
+ * reported line numbers are the same as with the sequential loader.
+ * </p>
+ */
+class ParallelTextLoader {
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * Tasks and corrupted line numbers parsed from one range of the file
+     */
+    private static class Chunk {
+        private final ArrayList<Task> tasks = new ArrayList<>();
+        private final ArrayList<Integer> corruptedLines = new ArrayList<>();
+        private int lineCount;
+        private int invalidDateLine = -1;
+
+        /**
+         * Appends a chunk that directly follows this one in the file
+         */
+        private Chunk append(Chunk next) {
+            tasks.addAll(next.tasks);
+            for (int line : next.corruptedLines) {
+                corruptedLines.add(line + lineCount);
+            }
+            if (invalidDateLine == -1 && next.invalidDateLine != -1) {
+                invalidDateLine = next.invalidDateLine + lineCount;
+            }
+            lineCount += next.lineCount;
+            return this;
+        }
+    }
+
+    private static class ParseTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        private ParseTask(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Chunk compute() {
+            if (end - start <= CHUNK_SIZE) {
+                return parse();
+            }
+            int split = nextLineStart(buffer, start + (end - start) / 2, end);
+            if (split >= end) {
+                return parse();
+            }
+            ParseTask left = new ParseTask(buffer, start, split);
+            ParseTask right = new ParseTask(buffer, split, end);
+            right.fork();
+            Chunk result = left.compute();
+            return result.append(right.join());
+        }
+
+        private Chunk parse() {
+            byte[] bytes = new byte[end - start];
+            buffer.duplicate().position(start).get(bytes);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            Chunk chunk = new Chunk();
+            int pos = 0;
+            while (pos < text.length()) {
+                int newline = text.indexOf('\n', pos);
+                int lineEnd = newline == -1 ? text.length() : newline;
+                if (lineEnd > pos && text.charAt(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                String line = text.substring(pos, lineEnd);
+                if (!SnapshotChecksum.isTextTrailer(line)) {
+                    chunk.lineCount++;
+                    parseLine(line, chunk);
+                }
+                pos = newline == -1 ? text.length() : newline + 1;
+            }
+            return chunk;
+        }
+
+        private void parseLine(String line, Chunk chunk) {
+            try {
+                chunk.tasks.add(Storage.parseTask(line));
+            } catch (DateTimeParseException e) {
+                if (chunk.invalidDateLine == -1) {
+                    chunk.invalidDateLine = chunk.lineCount;
+                }
+            } catch (FileCorruptedException e) {
+                chunk.corruptedLines.add(chunk.lineCount);
+            }
+        }
+    }
+
+    /**
+     * Finds the first position after the next newline, starting the search at {@code from}
+     */
+    private static int nextLineStart(ByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Loads all tasks from a text task file in parallel
+     * @param file - text task file, smaller than 2GB
+     * @param ui - logger to log corrupted lines at {@link Ui.Level#DEBUG}
+     * @param report - collects the corrupted lines
+     * @return tasks in file order
+     * @throws IOException if the file cannot be read
+     * @throws FileCorruptedException if a line contains an invalid datetime
+     */
+    static ArrayList<Task> load(File file, Ui ui, LoadReport report) throws IOException, FileCorruptedException {
+        Chunk result;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            result = ForkJoinPool.commonPool().invoke(new ParseTask(buffer, 0, buffer.limit()));
+        }
+        boolean isDebug = ui.isEnabled(Ui.Level.DEBUG);
+        for (int line : result.corruptedLines) {
+            if (result.invalidDateLine != -1 && line > result.invalidDateLine) {
+                break;
+            }
+            report.corrupted(line);
+            if (isDebug) {
+                ui.log(Ui.Level.DEBUG, "INFO[" + line + "] is corrupted");
+            }
+        }
+        if (result.invalidDateLine != -1) {
+            throw new FileCorruptedException("INFO[" + result.invalidDateLine + "] contains invalid datetime");
+        }
+        return result.tasks;
+    }
+}
@@ -0,0 +1,202 @@
+package barcelona.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import barcelona.task.Task;
+
+/**
+ * Layout of a task file that is split into shards by task ID.
+ * <p>
+ * The task file is a directory holding a {@code manifest} and one file per
+ * shard. Shard {@code n} holds the tasks with IDs from {@code n * size + 1} up
+ * to {@code (n + 1) * size}, in the snapshot format of the storage. Tasks are
+ * appended with increasing IDs, so reading the shards in order gives the tasks
+ * in list order.
+ * </p>
+ * <p>
+ * Every change marks the shard of its task as dirty, and only dirty shards are
+ * rewritten. The manifest holds the layout version and the shard size, and is
+ * only written when the directory is created. A shard that becomes empty is
+ * deleted.
+ * </p>
+ */
+class ShardedLayout {
+    static final String MANIFEST = "manifest";
+    private static final String MANIFEST_HEADER = "barcelona shards 1";
+    private static final String SIZE_PREFIX = "shard-size ";
+    private static final String SHARD_PREFIX = "shard-";
+
+    private final File directory;
+    private final int shardSize;
+    /** Shards changed since the last write, guarded by this */
+    private final BitSet dirty = new BitSet();
+    private boolean isAllDirty;
+
+    /**
+     * @param directory - directory of the sharded task file
+     * @param shardSize - number of task IDs per shard
+     */
+    ShardedLayout(File directory, int shardSize) {
+        assert shardSize > 0;
+        this.directory = directory;
+        this.shardSize = shardSize;
+    }
+
+    /**
+     * Opens an existing sharded task file with the shard size in its manifest
+     * @param directory - directory of the sharded task file
+     * @return layout of the directory, with no dirty shards
+     * @throws IOException if the manifest is missing or invalid
+     */
+    static ShardedLayout open(File directory) throws IOException {
+        List<String> lines = Files.readAllLines(new File(directory, MANIFEST).toPath(), StandardCharsets.UTF_8);
+        if (lines.size() < 2 || !lines.get(0).equals(MANIFEST_HEADER) || !lines.get(1).startsWith(SIZE_PREFIX)) {
+            throw new IOException("invalid shard manifest");
+        }
+        try {
+            int shardSize = Integer.parseInt(lines.get(1).substring(SIZE_PREFIX.length()).trim());
+            if (shardSize <= 0) {
+                throw new IOException("invalid shard size");
+            }
+            return new ShardedLayout(directory, shardSize);
+        } catch (NumberFormatException e) {
+            throw new IOException("invalid shard size");
+        }
+    }
+
+    /**
+     * Writes the manifest into a directory, which marks it as a complete sharded task file
+     * @param target - directory to write the manifest into, e.g. while converting a single file
+     * @throws IOException if the manifest cannot be written
+     */
+    void writeManifest(File target) throws IOException {
+        String manifest = MANIFEST_HEADER + "\n" + SIZE_PREFIX + shardSize + "\n";
+        Files.writeString(new File(target, MANIFEST).toPath(), manifest, StandardCharsets.UTF_8);
+    }
+
+    static boolean hasManifest(File directory) {
+        return new File(directory, MANIFEST).isFile();
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    int shardOf(long id) {
+        return (int) ((id - 1) / shardSize);
+    }
+
+    File shardFile(File target, int shard) {
+        return new File(target, SHARD_PREFIX + shard);
+    }
+
+    /**
+     * Lists the shards in the directory
+     * @param tempSuffix - suffix of temp files, which are not shards
+     * @return indices of the shards, in ascending order
+     */
+    BitSet listShards(String tempSuffix) {
+        BitSet shards = new BitSet();
+        String[] names = directory.list();
+        if (names == null) {
+            return shards;
+        }
+        for (String name : names) {
+            if (!name.startsWith(SHARD_PREFIX) || name.endsWith(tempSuffix)) {
+                continue;
+            }
+            try {
+                shards.set(Integer.parseInt(name.substring(SHARD_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                // not a shard, e.g. a file left there by hand
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Finds the shards that hold at least one of the tasks
+     * @param tasks - tasks in ascending ID order
+     */
+    BitSet shardsOf(List<Task> tasks) {
+        BitSet shards = new BitSet();
+        for (Task task : tasks) {
+            shards.set(shardOf(task.getId()));
+        }
+        return shards;
+    }
+
+    /**
+     * Returns the tasks of one shard
+     * @param tasks - tasks in ascending ID order
+     * @param shard - index of the shard
+     * @return view of the tasks whose IDs belong to the shard
+     */
+    List<Task> tasksOf(ArrayList<Task> tasks, int shard) {
+        long firstId = (long) shard * shardSize + 1;
+        return tasks.subList(indexOfId(tasks, firstId), indexOfId(tasks, firstId + shardSize));
+    }
+
+    /**
+     * Finds the first task with at least the given ID by binary search
+     */
+    private static int indexOfId(ArrayList<Task> tasks, long id) {
+        int low = 0;
+        int high = tasks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tasks.get(mid).getId() < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Records that a task changed, so that its shard is rewritten
+     * @param id - ID of the task
+     */
+    synchronized void markDirty(long id) {
+        if (id > 0) {
+            dirty.set(shardOf(id));
+        }
+    }
+
+    /**
+     * Records that every shard has to be written, e.g. before a single file is converted
+     */
+    synchronized void markAllDirty() {
+        isAllDirty = true;
+    }
+
+    /**
+     * Takes the shards changed since the last call
+     * @return the dirty shards, or null if every shard has to be written
+     */
+    synchronized BitSet takeDirty() {
+        BitSet taken = isAllDirty ? null : (BitSet) dirty.clone();
+        dirty.clear();
+        isAllDirty = false;
+        return taken;
+    }
+
+    /**
+     * Marks shards taken by {@link #takeDirty()} as dirty again after they could not be written
+     * @param taken - shards that were taken, or null for all of them
+     */
+    synchronized void restoreDirty(BitSet taken) {
+        if (taken == null) {
+            isAllDirty = true;
+        } else {
+            dirty.or(taken);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package barcelona.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Adler32;
+
+/**
+ * Adler-32 checksum trailer at the end of a snapshot file.
+ * <p>
+ * The checksum covers every byte of the file in front of the trailer. A text
+ * snapshot ends with a last line {@code # adler32 <8 hex digits>}, and a binary
+ * snapshot with the checksum as an int after its last record.
+ * </p>
+ * <p>
+ * Adler-32 is used rather than CRC-32 because it can be updated when a single
+ * byte of the file changes without reading the rest of it, so done flags that
+ * are patched in place by a {@link StatusIndex} keep the trailer valid.
+ * </p>
+ */
+class SnapshotChecksum {
+    /** Start of the last line of a text snapshot, followed by the checksum in hex */
+    static final String TEXT_TRAILER = "# adler32 ";
+    static final int TEXT_DIGITS = 8;
+    private static final int MODULUS = 65521;
+
+    /**
+     * Result of checking a snapshot against its trailer
+     */
+    enum Status {
+        VALID,
+        /** The file has no trailer, e.g. since it was written before snapshots had one */
+        MISSING,
+        MISMATCH
+    }
+
+    /**
+     * Checks whether a line of a text snapshot is its checksum trailer rather than a task
+     */
+    static boolean isTextTrailer(String line) {
+        return line.startsWith(TEXT_TRAILER);
+    }
+
+    /**
+     * Encodes a checksum the way it is stored in the trailer
+     * @param checksum - Adler-32 value
+     * @param isBinary - whether the trailer belongs to a binary snapshot
+     * @return buffer ready to be written
+     */
+    static ByteBuffer encode(long checksum, boolean isBinary) {
+        if (isBinary) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) checksum);
+        }
+        return ByteBuffer.wrap(String.format("%08x", checksum).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Works out the checksum of a file after one of its bytes changed
+     * @param checksum - Adler-32 value before the change
+     * @param coveredLength - number of bytes the checksum covers
+     * @param position - position of the changed byte
+     * @param oldByte - byte before the change
+     * @param newByte - byte after the change
+     * @return Adler-32 value after the change
+     */
+    static long update(long checksum, long coveredLength, long position, byte oldByte, byte newByte) {
+        int delta = Byte.toUnsignedInt(newByte) - Byte.toUnsignedInt(oldByte);
+        long a = checksum & 0xffff;
+        long b = checksum >>> 16;
+        // a is 1 plus the sum of all bytes, and b adds each byte once for every byte from it to the end
+        a = Math.floorMod(a + delta, MODULUS);
+        b = Math.floorMod(b + (coveredLength - position) % MODULUS * delta, MODULUS);
+        return b << 16 | a;
+    }
+
+    /**
+     * Finds the checksum trailer of a text snapshot
+     * @param buffer - contents of the file
+     * @return position of the trailer line, or -1 if the last line is not a trailer
+     */
+    static int findTextTrailer(ByteBuffer buffer) {
+        int end = buffer.limit();
+        while (end > 0 && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r')) {
+            end--;
+        }
+        int lineStart = end;
+        while (lineStart > 0 && buffer.get(lineStart - 1) != '\n') {
+            lineStart--;
+        }
+        return readTextTrailer(buffer, lineStart) < 0 ? -1 : lineStart;
+    }
+
+    /**
+     * Reads the checksum from the trailer line of a text snapshot
+     * @param buffer - contents of the file
+     * @param lineStart - position of the line
+     * @return the checksum, or -1 if the line is not a trailer
+     */
+    static long readTextTrailer(ByteBuffer buffer, int lineStart) {
+        if (lineStart + TEXT_TRAILER.length() + TEXT_DIGITS > buffer.limit()) {
+            return -1;
+        }
+        for (int i = 0; i < TEXT_TRAILER.length(); i++) {
+            if (buffer.get(lineStart + i) != TEXT_TRAILER.charAt(i)) {
+                return -1;
+            }
+        }
+        long checksum = 0;
+        for (int i = 0; i < TEXT_DIGITS; i++) {
+            int digit = Character.digit(buffer.get(lineStart + TEXT_TRAILER.length() + i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            checksum = checksum << 4 | digit;
+        }
+        return checksum;
+    }
+
+    /**
+     * Checks a snapshot against its checksum trailer
+     * @param file - snapshot to check
+     * @param isBinary - whether the file is a binary snapshot
+     * @return whether the file matches its trailer, or has none
+     * @throws IOException if the file cannot be read
+     */
+    static Status verify(File file, boolean isBinary) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int covered;
+            long expected;
+            if (isBinary) {
+                if (!BinaryCodec.hasChecksum(buffer)) {
+                    return Status.MISSING;
+                }
+                covered = buffer.limit() - Integer.BYTES;
+                expected = Integer.toUnsignedLong(buffer.getInt(covered));
+            } else {
+                covered = findTextTrailer(buffer);
+                if (covered < 0) {
+                    return Status.MISSING;
+                }
+                expected = readTextTrailer(buffer, covered);
+            }
+            Adler32 adler = new Adler32();
+            adler.update(buffer.slice(0, covered));
+            return adler.getValue() == expected ? Status.VALID : Status.MISMATCH;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package barcelona.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import barcelona.metrics.Metrics;
+
+/**
+ * Byte offsets of the done flags in a snapshot file, by task ID.
+ * <p>
+ * Marking a task only changes its done flag, which takes up one byte in both
+ * snapshot formats: the {@code 0} or {@code 1} after the type in a text line,
+ * and the done byte of a binary record. With the offset of that byte known,
+ * a mark or unmark is written in place with a positional {@link FileChannel}
+ * write instead of a rewrite of the whole file.
+ * </p>
+ * <p>
+ * Tasks are written in display order, and new tasks get ever larger IDs, so
+ * the IDs ascend through the file and are found by binary search. A file
+ * whose IDs do not ascend, or that has tasks without IDs, cannot be indexed,
+ * and every change to it is written as a full snapshot.
+ * </p>
+ * <p>
+ * If the file ends with a {@link SnapshotChecksum} trailer, the index also
+ * knows where it is, and every patch updates the checksum along with the flags.
+ * </p>
+ */
+class StatusIndex {
+    /** What follows the ID of a text line up to the done flag, with {@code ?} for the type */
+    private static final String TEXT_PREFIX = " | ? | ";
+
+    private final boolean isBinary;
+    private long[] ids = new long[16];
+    private long[] offsets = new long[16];
+    private int size;
+    private boolean isUsable = true;
+    /** Position of the checksum value in the trailer, or -1 if the file has none */
+    private long checksumPosition = -1;
+    /** Number of bytes covered by the checksum */
+    private long checksumLength;
+    private long checksum;
+
+    /**
+     * Creates an empty index
+     * @param isBinary - whether the file is a binary snapshot, which stores the flag as a 0 or 1 byte
+     */
+    StatusIndex(boolean isBinary) {
+        this.isBinary = isBinary;
+    }
+
+    /**
+     * Records where the done flag of the next task in the file is
+     * @param id - ID of the task, or 0 if it has none
+     * @param offset - position of the done flag in bytes from the start of the file
+     */
+    void add(long id, long offset) {
+        if (id <= 0 || size > 0 && id <= ids[size - 1]) {
+            isUsable = false;
+        }
+        if (!isUsable) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        ids[size] = id;
+        offsets[size] = offset;
+        size++;
+    }
+
+    /**
+     * Marks the file as one that cannot be patched in place
+     */
+    void invalidate() {
+        isUsable = false;
+    }
+
+    boolean isUsable() {
+        return isUsable;
+    }
+
+    /**
+     * Records where the checksum trailer of the file is
+     * @param position - position of the checksum value in bytes from the start of the file
+     * @param coveredLength - number of bytes in front of the trailer, which the checksum covers
+     * @param checksum - current Adler-32 value
+     */
+    void setChecksum(long position, long coveredLength, long checksum) {
+        this.checksumPosition = position;
+        this.checksumLength = coveredLength;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Writes the done flags of the given tasks into the file in place, and then its new checksum
+     * @param file - snapshot file this index describes
+     * @param taskIds - IDs of the tasks to update
+     * @param isDone - new done flag of each task
+     * @param isForced - whether to force the changes to the storage device before returning
+     * @return false if a task is not in the file, in which case nothing is written
+     * @throws IOException if the file cannot be written
+     */
+    boolean patch(File file, long[] taskIds, boolean[] isDone, boolean isForced) throws IOException {
+        if (!isUsable) {
+            return false;
+        }
+        long[] positions = new long[taskIds.length];
+        for (int i = 0; i < taskIds.length; i++) {
+            int found = Arrays.binarySearch(ids, 0, size, taskIds[i]);
+            if (found < 0) {
+                return false;
+            }
+            positions[i] = offsets[found];
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer flag = ByteBuffer.allocate(1);
+            for (int i = 0; i < positions.length; i++) {
+                byte newFlag = flagByte(isDone[i]);
+                if (checksumPosition >= 0) {
+                    flag.clear();
+                    channel.read(flag, positions[i]);
+                    checksum = SnapshotChecksum.update(checksum, checksumLength, positions[i], flag.get(0), newFlag);
+                }
+                flag.clear();
+                flag.put(newFlag).flip();
+                channel.write(flag, positions[i]);
+            }
+            if (checksumPosition >= 0) {
+                ByteBuffer trailer = SnapshotChecksum.encode(checksum, isBinary);
+                Metrics.addBytesWritten(trailer.remaining());
+                channel.write(trailer, checksumPosition);
+            }
+            Metrics.addBytesWritten(positions.length);
+            if (isForced) {
+                channel.force(false);
+            }
+        }
+        return true;
+    }
+
+    private byte flagByte(boolean isDone) {
+        if (isBinary) {
+            return (byte) (isDone ? 1 : 0);
+        }
+        return (byte) (isDone ? '1' : '0');
+    }
+
+    /**
+     * Builds the index of a text snapshot by scanning its lines.
+     * <p>Every line but the checksum trailer must start with {@code <id> | <type> | <done>};
+     * the bytes of this prefix are ASCII in any charset the file may be written in.</p>
+     * @param file - text snapshot to scan
+     * @return the index, which is not usable if a line has no ID
+     * @throws IOException if the file cannot be read
+     */
+    static StatusIndex scanText(File file) throws IOException {
+        StatusIndex index = new StatusIndex(false);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int trailer = SnapshotChecksum.findTextTrailer(buffer);
+            if (trailer >= 0) {
+                index.setChecksum(trailer + SnapshotChecksum.TEXT_TRAILER.length(), trailer,
+                        SnapshotChecksum.readTextTrailer(buffer, trailer));
+            }
+            int end = trailer >= 0 ? trailer : buffer.limit();
+            int lineStart = 0;
+            while (lineStart < end && index.isUsable()) {
+                int position = lineStart;
+                long id = 0;
+                while (position < buffer.limit() && buffer.get(position) >= '0' && buffer.get(position) <= '9'
+                        && id < Long.MAX_VALUE / 10) {
+                    id = id * 10 + buffer.get(position) - '0';
+                    position++;
+                }
+                int flag = position + TEXT_PREFIX.length();
+                index.add(hasTextPrefix(buffer, position) ? id : 0, flag);
+                while (position < buffer.limit() && buffer.get(position) != '\n') {
+                    position++;
+                }
+                lineStart = position + 1;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Checks that {@code " | <type> | "} and a done flag follow a position
+     */
+    private static boolean hasTextPrefix(ByteBuffer buffer, int position) {
+        if (position + TEXT_PREFIX.length() >= buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < TEXT_PREFIX.length(); i++) {
+            char expected = TEXT_PREFIX.charAt(i);
+            if (expected != '?' && buffer.get(position + i) != expected) {
+                return false;
+            }
+        }
+        byte flag = buffer.get(position + TEXT_PREFIX.length());
+        return flag == '0' || flag == '1';
+    }
+}
@@ -0,0 +1,145 @@
+package barcelona.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import barcelona.task.TaskList;
+
+/**
+ * Keeps recently used task files open, so switching back to one does not parse it again.
+ * <p>
+ * Entries are keyed by the canonical path of the task file and hold its open
+ * {@link Storage} with the loaded {@link TaskList}. A task file is flushed
+ * when it is put into the cache, and the modification time and size of its
+ * files are noted. If they differ when the file is taken back out, it was
+ * changed by someone else, so the entry is dropped and the file has to be
+ * loaded again.
+ * </p>
+ * <p>
+ * The least recently used entries are evicted once the cache holds more than
+ * its number of entries or tasks. Evicted task files are persisted and closed.
+ * The cache is used by one thread at a time.
+ * </p>
+ */
+public class TaskFileCache {
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+    public static final long DEFAULT_MAX_TASKS = 1_000_000;
+
+    /**
+     * An open task file with its tasks
+     */
+    public record Entry(Storage storage, TaskList tasks) {
+    }
+
+    /**
+     * Modification time and size of the files of a task file, to tell whether they changed
+     */
+    private record Stamp(int fileCount, long lastModified, long bytes) {
+        static Stamp of(Storage storage) {
+            int fileCount = 0;
+            long lastModified = 0;
+            long bytes = 0;
+            for (File file : storage.getFiles()) {
+                fileCount++;
+                lastModified = Math.max(lastModified, file.lastModified());
+                bytes += file.length();
+            }
+            return new Stamp(fileCount, lastModified, bytes);
+        }
+    }
+
+    private record Cached(Entry entry, Stamp stamp) {
+    }
+
+    private final int maxEntries;
+    private final long maxTasks;
+    private final LinkedHashMap<String, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long taskCount;
+
+    /**
+     * @param maxEntries - number of task files kept open at most
+     * @param maxTasks - number of tasks kept in memory at most, across all entries
+     */
+    public TaskFileCache(int maxEntries, long maxTasks) {
+        this.maxEntries = maxEntries;
+        this.maxTasks = maxTasks;
+    }
+
+    /**
+     * Returns the key of a task file, which is its canonical path
+     * @param filePath - path of the task file as given by the user
+     */
+    public static String keyOf(String filePath) {
+        File file = new File(filePath);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Flushes a task file and keeps it open, evicting the least recently used ones over the limits
+     * @param key - key of the task file, see {@link #keyOf(String)}
+     * @param entry - open task file, whose changes were already persisted
+     */
+    public void put(String key, Entry entry) {
+        entry.storage().flush();
+        Cached previous = entries.put(key, new Cached(entry, Stamp.of(entry.storage())));
+        if (previous != null) {
+            taskCount -= previous.entry().tasks().size();
+            if (previous.entry() != entry) {
+                close(previous.entry());
+            }
+        }
+        taskCount += entry.tasks().size();
+        Iterator<Cached> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || taskCount > maxTasks) && eldest.hasNext()) {
+            Cached evicted = eldest.next();
+            eldest.remove();
+            taskCount -= evicted.entry().tasks().size();
+            close(evicted.entry());
+        }
+    }
+
+    /**
+     * Removes a task file from the cache to use it again
+     * @param key - key of the task file, see {@link #keyOf(String)}
+     * @return the open task file, or null if it is not cached or its files changed since it was put
+     */
+    public Entry take(String key) {
+        Cached cached = entries.remove(key);
+        if (cached == null) {
+            return null;
+        }
+        taskCount -= cached.entry().tasks().size();
+        if (!Stamp.of(cached.entry().storage()).equals(cached.stamp())) {
+            cached.entry().storage().close();
+            return null;
+        }
+        return cached.entry();
+    }
+
+    /**
+     * Persists and closes every cached task file
+     */
+    public void clear() {
+        for (Cached cached : entries.values()) {
+            close(cached.entry());
+        }
+        entries.clear();
+        taskCount = 0;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static void close(Entry entry) {
+        entry.storage().persist(entry.tasks());
+        entry.storage().close();
+    }
+}
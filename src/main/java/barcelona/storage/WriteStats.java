@@ -0,0 +1,60 @@
+package barcelona.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency of the writes made by a {@link Storage}, by durability mode and kind of write.
+ * <p>
+ * Writes are recorded by whichever thread makes them, usually the background
+ * writer, and summarised from any other thread.
+ * </p>
+ */
+class WriteStats {
+    private static class Latency {
+        private long count;
+        private long failures;
+        private long totalNanos;
+        private long maxNanos;
+    }
+
+    private final LinkedHashMap<String, Latency> latencies = new LinkedHashMap<>();
+
+    /**
+     * Records one write
+     * @param mode - durability mode the write was made in
+     * @param kind - what was written, e.g. {@code snapshots}
+     * @param nanos - time the write took
+     * @param isSuccessful - whether the write reached the file
+     */
+    synchronized void record(Storage.Durability mode, String kind, long nanos, boolean isSuccessful) {
+        Latency latency = latencies.computeIfAbsent(mode.toString() + " " + kind, key -> new Latency());
+        latency.count++;
+        latency.totalNanos += nanos;
+        latency.maxNanos = Math.max(latency.maxNanos, nanos);
+        if (!isSuccessful) {
+            latency.failures++;
+        }
+    }
+
+    /**
+     * Summarises the writes of each mode and kind, in the order they were first made
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Latency> entry : latencies.entrySet()) {
+            Latency latency = entry.getValue();
+            if (!summary.isEmpty()) {
+                summary.append(", ");
+            }
+            summary.append(String.format("%s %d (mean %.3f ms, max %.3f ms", entry.getKey(), latency.count,
+                    latency.totalNanos / 1e6 / latency.count, latency.maxNanos / 1e6));
+            if (latency.failures > 0) {
+                summary.append(", ").append(latency.failures).append(" failed");
+            }
+            summary.append(')');
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,340 @@
+package barcelona.task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Order-statistic sequence of tasks kept in primitive columns.
+ * <p>
+ * Instead of one object graph per task, every field lives in an array indexed
+ * by slot: a type tag byte, a bit in a {@link BitSet} for the done flag, the ID,
+ * dates as minutes since the epoch, and the UTF-8 bytes of all descriptions
+ * packed back to back. A task costs about 33 bytes plus its description,
+ * instead of several hundred bytes for the task, its strings and dates, and
+ * the map entry that finds it by ID.
+ * </p>
+ * <p>
+ * Task objects are created on demand as detached views, so completion status
+ * is changed with {@link #setDone} rather than on the task. Dates are kept to
+ * the minute, like in the task file.
+ * </p>
+ * <p>
+ * Slots are ordered like in {@link TaskSequence}, with a {@link SlotCounter}
+ * over them. Since new tasks get ever larger IDs, IDs normally ascend with the
+ * slots and are found by binary search. Only if a task arrives out of order is
+ * a map from ID to slot built.
+ * </p>
+ */
+class CompactTaskSequence implements TaskStore {
+    private static final int MIN_CAPACITY = 16;
+    private static final byte EMPTY = 0;
+    private static final byte TODO = 'T';
+    private static final byte DEADLINE = 'D';
+    private static final byte EVENT = 'E';
+
+    private byte[] types;
+    private BitSet done = new BitSet();
+    private long[] ids;
+    /** Deadline, or start of an event */
+    private long[] firstMinutes;
+    /** End of an event */
+    private long[] endMinutes;
+    /** Start of each description in {@link #text}; the next entry marks its end */
+    private int[] textStarts;
+    private byte[] text;
+    private final SlotCounter counter;
+    private HashMap<Long, Integer> slotById;
+    private int used;
+    private int size;
+
+    CompactTaskSequence() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates an empty sequence with room for the given number of tasks
+     * @param capacity - expected number of tasks
+     */
+    CompactTaskSequence(int capacity) {
+        capacity = Math.max(MIN_CAPACITY, capacity);
+        types = new byte[capacity];
+        ids = new long[capacity];
+        firstMinutes = new long[capacity];
+        endMinutes = new long[capacity];
+        textStarts = new int[capacity + 1];
+        text = new byte[capacity * Long.BYTES];
+        counter = new SlotCounter(capacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Task task) {
+        assert findSlot(task.getId()) < 0;
+        if (used == types.length) {
+            resize(Math.max(MIN_CAPACITY, size * 2));
+        }
+        int slot = used;
+        if (task instanceof Deadlines deadline) {
+            types[slot] = DEADLINE;
+            firstMinutes[slot] = toEpochMinute(deadline.getDeadline());
+        } else if (task instanceof Events event) {
+            types[slot] = EVENT;
+            firstMinutes[slot] = toEpochMinute(event.getStart());
+            endMinutes[slot] = toEpochMinute(event.getEnd());
+        } else {
+            types[slot] = TODO;
+        }
+        done.set(slot, task.isDone());
+        if (slotById == null && slot > 0 && task.getId() <= ids[slot - 1]) {
+            buildIdMap();
+        }
+        ids[slot] = task.getId();
+        if (slotById != null) {
+            slotById.put(task.getId(), slot);
+        }
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        int start = textStarts[slot];
+        if (start + description.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, start + description.length));
+        }
+        System.arraycopy(description, 0, text, start, description.length);
+        textStarts[slot + 1] = start + description.length;
+        counter.increment(slot, 1);
+        used++;
+        size++;
+    }
+
+    @Override
+    public boolean canAdd(long id) {
+        return findSlot(id) < 0;
+    }
+
+    @Override
+    public Task get(int index) {
+        return view(slotOf(index));
+    }
+
+    @Override
+    public Task setDone(int index, boolean isDone) {
+        int slot = slotOf(index);
+        done.set(slot, isDone);
+        return view(slot);
+    }
+
+    @Override
+    public Task remove(int index) {
+        int slot = slotOf(index);
+        Task removed = view(slot);
+        removeSlot(slot);
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Like {@link TaskSequence#removeAll}, larger batches are dropped in a
+     * single pass that compacts the columns.</p>
+     */
+    @Override
+    public ArrayList<Task> removeAll(BitSet indices) {
+        assert indices.length() <= size;
+        int count = indices.cardinality();
+        ArrayList<Task> removed = new ArrayList<>(count);
+        if (count < size / Integer.SIZE) {
+            for (int index = indices.previousSetBit(size - 1); index >= 0;
+                    index = indices.previousSetBit(index - 1)) {
+                removed.add(remove(index));
+            }
+            Collections.reverse(removed);
+            return removed;
+        }
+        int index = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (types[slot] == EMPTY) {
+                continue;
+            }
+            if (indices.get(index)) {
+                removed.add(view(slot));
+                clearSlot(slot);
+            }
+            index++;
+        }
+        size -= count;
+        resize(Math.max(MIN_CAPACITY, size * 2));
+        return removed;
+    }
+
+    @Override
+    public Task removeById(long id) {
+        int slot = findSlot(id);
+        if (slot < 0) {
+            return null;
+        }
+        Task removed = view(slot);
+        removeSlot(slot);
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Tasks are views, so any task with the same ID counts.</p>
+     */
+    @Override
+    public boolean remove(Task task) {
+        return removeById(task.getId()) != null;
+    }
+
+    @Override
+    public Task getById(long id) {
+        int slot = findSlot(id);
+        return slot < 0 ? null : view(slot);
+    }
+
+    @Override
+    public int indexOf(long id) {
+        int slot = findSlot(id);
+        return slot < 0 ? -1 : counter.prefixCount(slot) - 1;
+    }
+
+    @Override
+    public ArrayList<Task> toList() {
+        ArrayList<Task> tasks = new ArrayList<>(size);
+        for (int slot = 0; slot < used; slot++) {
+            if (types[slot] != EMPTY) {
+                tasks.add(view(slot));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Creates a task object from the columns of a slot
+     */
+    private Task view(int slot) {
+        String description = new String(text, textStarts[slot], textStarts[slot + 1] - textStarts[slot],
+                StandardCharsets.UTF_8);
+        Task task = switch (types[slot]) {
+        case DEADLINE -> new Deadlines(fromEpochMinute(firstMinutes[slot]), description);
+        case EVENT -> new Events(description, fromEpochMinute(firstMinutes[slot]),
+                fromEpochMinute(endMinutes[slot]));
+        default -> new Todos(description);
+        };
+        if (done.get(slot)) {
+            task.markAsDone();
+        }
+        task.setId(ids[slot]);
+        return task;
+    }
+
+    /**
+     * Finds the slot of the task with the given ID
+     * @return the slot, or -1 if there is none
+     */
+    private int findSlot(long id) {
+        if (slotById != null) {
+            Integer slot = slotById.get(id);
+            return slot == null ? -1 : slot;
+        }
+        int slot = Arrays.binarySearch(ids, 0, used, id);
+        return slot < 0 || types[slot] == EMPTY ? -1 : slot;
+    }
+
+    private void buildIdMap() {
+        slotById = new HashMap<>();
+        for (int slot = 0; slot < used; slot++) {
+            if (types[slot] != EMPTY) {
+                slotById.put(ids[slot], slot);
+            }
+        }
+    }
+
+    private void removeSlot(int slot) {
+        clearSlot(slot);
+        counter.increment(slot, -1);
+        size--;
+        if (used - size > Math.max(size, MIN_CAPACITY)) {
+            resize(Math.max(MIN_CAPACITY, size * 2));
+        }
+    }
+
+    /**
+     * Empties a slot, keeping its ID so that the IDs still ascend
+     */
+    private void clearSlot(int slot) {
+        types[slot] = EMPTY;
+        done.clear(slot);
+        if (slotById != null) {
+            slotById.remove(ids[slot]);
+        }
+    }
+
+    private int slotOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return counter.slotOf(index);
+    }
+
+    /**
+     * Moves the tasks into fresh columns without empty slots or unused text
+     */
+    private void resize(int capacity) {
+        byte[] newTypes = new byte[capacity];
+        BitSet newDone = new BitSet(capacity);
+        long[] newIds = new long[capacity];
+        long[] newFirstMinutes = new long[capacity];
+        long[] newEndMinutes = new long[capacity];
+        int[] newTextStarts = new int[capacity + 1];
+        int textLength = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (types[slot] != EMPTY) {
+                textLength += textStarts[slot + 1] - textStarts[slot];
+            }
+        }
+        byte[] newText = new byte[Math.max(textLength * 2, capacity * Long.BYTES)];
+        int next = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (types[slot] == EMPTY) {
+                continue;
+            }
+            newTypes[next] = types[slot];
+            newDone.set(next, done.get(slot));
+            newIds[next] = ids[slot];
+            newFirstMinutes[next] = firstMinutes[slot];
+            newEndMinutes[next] = endMinutes[slot];
+            int length = textStarts[slot + 1] - textStarts[slot];
+            System.arraycopy(text, textStarts[slot], newText, newTextStarts[next], length);
+            newTextStarts[next + 1] = newTextStarts[next] + length;
+            next++;
+        }
+        types = newTypes;
+        done = newDone;
+        ids = newIds;
+        firstMinutes = newFirstMinutes;
+        endMinutes = newEndMinutes;
+        textStarts = newTextStarts;
+        text = newText;
+        counter.reset(capacity, next);
+        used = next;
+        if (slotById != null) {
+            buildIdMap();
+        }
+    }
+
+    private static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime fromEpochMinute(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,73 @@
+package barcelona.task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Time-ordered index over the deadlines in a tasklist.
+ * <p>
+ * Deadlines are kept in a {@link TreeMap} keyed by the minute they are due, so
+ * the deadlines in a time window are found in O(log n + k) instead of by
+ * scanning the whole list. Deadlines due in the same minute are kept in the
+ * order they were added.
+ * </p>
+ */
+class DeadlineIndex {
+    private final TreeMap<Long, List<Deadlines>> byMinute = new TreeMap<>();
+
+    void add(Task task) {
+        if (task instanceof Deadlines deadline) {
+            byMinute.computeIfAbsent(toEpochMinute(deadline.getDeadline()), k -> new ArrayList<>())
+                    .add(deadline);
+        }
+    }
+
+    void remove(Task task) {
+        if (!(task instanceof Deadlines deadline)) {
+            return;
+        }
+        long key = toEpochMinute(deadline.getDeadline());
+        List<Deadlines> bucket = byMinute.get(key);
+        if (bucket != null) {
+            bucket.removeIf(t -> t == deadline);
+            if (bucket.isEmpty()) {
+                byMinute.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Finds deadlines due at or before the given time
+     * @param until - latest due date to include
+     * @return deadlines ordered by due date
+     */
+    List<Task> dueBefore(LocalDateTime until) {
+        return flatten(byMinute.headMap(toEpochMinute(until), true).values());
+    }
+
+    /**
+     * Finds deadlines due within the given window, inclusive on both ends
+     * @param from - earliest due date to include
+     * @param to - latest due date to include
+     * @return deadlines ordered by due date
+     */
+    List<Task> dueBetween(LocalDateTime from, LocalDateTime to) {
+        return flatten(byMinute.subMap(toEpochMinute(from), true, toEpochMinute(to), true).values());
+    }
+
+    private static List<Task> flatten(Collection<List<Deadlines>> buckets) {
+        ArrayList<Task> result = new ArrayList<>();
+        for (List<Deadlines> bucket : buckets) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    private static long toEpochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
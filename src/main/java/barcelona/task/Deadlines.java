@@ -12,6 +12,8 @@ import java.time.format.DateTimeFormatter;
  * </p>
  */
 public class Deadlines extends Task {
+    private static final DateTimeFormatter OUTPUT_FORMATTER = DateTimeFormatter.ofPattern("d MMMM yyyy, h:mma");
+    private static final DateTimeFormatter EXPORT_FORMATTER = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
     private final LocalDateTime deadline;
 
     /**
@@ -24,16 +26,18 @@ public class Deadlines extends Task {
         this.deadline = deadline;
     }
 
+    public LocalDateTime getDeadline() {
+        return this.deadline;
+    }
+
     @Override
     public String toString() {
-        DateTimeFormatter outputFormatter = DateTimeFormatter.ofPattern("d MMMM yyyy, h:mma");
-        return "[D]" + super.toString() + " (by: " + this.deadline.format(outputFormatter) + ")";
+        return "[D]" + super.toString() + " (by: " + this.deadline.format(OUTPUT_FORMATTER) + ")";
     }
 
     @Override
     public String export() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
         return "D | " + (this.isDone ? 1 : 0) + " | " + this.description + " | "
-                + this.deadline.format(formatter);
+                + this.deadline.format(EXPORT_FORMATTER);
     }
 }
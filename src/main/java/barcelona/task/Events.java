@@ -13,6 +13,8 @@ import java.time.format.DateTimeFormatter;
  * </p>
  */
 public class Events extends Task {
+    private static final DateTimeFormatter OUTPUT_FORMATTER = DateTimeFormatter.ofPattern("d MMMM yyyy, h:mma");
+    private static final DateTimeFormatter EXPORT_FORMATTER = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
     private final LocalDateTime start;
     private final LocalDateTime end;
 
@@ -28,17 +30,23 @@ public class Events extends Task {
         this.end = end;
     }
 
+    public LocalDateTime getStart() {
+        return this.start;
+    }
+
+    public LocalDateTime getEnd() {
+        return this.end;
+    }
+
     @Override
     public String toString() {
-        DateTimeFormatter outputFormatter = DateTimeFormatter.ofPattern("d MMMM yyyy, h:mma");
-        return "[E]" + super.toString() + " (from: " + this.start.format(outputFormatter)
-                + " to: " + this.end.format(outputFormatter) + ")";
+        return "[E]" + super.toString() + " (from: " + this.start.format(OUTPUT_FORMATTER)
+                + " to: " + this.end.format(OUTPUT_FORMATTER) + ")";
     }
 
     @Override
     public String export() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
         return "E | " + (this.isDone ? 1 : 0) + " | " + this.description + " | "
-                + this.start.format(formatter) + " | " + this.end.format(formatter);
+                + this.start.format(EXPORT_FORMATTER) + " | " + this.end.format(EXPORT_FORMATTER);
     }
 }
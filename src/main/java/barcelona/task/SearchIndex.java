@@ -0,0 +1,98 @@
+package barcelona.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Trigram inverted index over task descriptions.
+ * <p>
+ * Every task is registered under each three-character sequence of its
+ * description. A keyword of three or more characters can only be contained in
+ * descriptions that share all of its trigrams, so a search only has to check
+ * the tasks in the smallest matching posting set instead of the whole list.
+ * Candidates are still confirmed with {@link String#contains}, which keeps the
+ * results identical to a linear scan.
+ * </p>
+ */
+class SearchIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private final HashMap<Long, Set<Task>> postings = new HashMap<>();
+    private final IdentityHashMap<Task, Long> sequence = new IdentityHashMap<>();
+    private long nextSequence;
+
+    /**
+     * Indexes a task that was appended to the end of the tasklist
+     * @param task - task to index
+     */
+    void add(Task task) {
+        sequence.put(task, nextSequence++);
+        String description = task.description;
+        for (int i = 0; i + GRAM_LENGTH <= description.length(); i++) {
+            postings.computeIfAbsent(gram(description, i),
+                    k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(task);
+        }
+    }
+
+    /**
+     * Removes a task from the index
+     * @param task - task to remove
+     */
+    void remove(Task task) {
+        if (sequence.remove(task) == null) {
+            return;
+        }
+        String description = task.description;
+        for (int i = 0; i + GRAM_LENGTH <= description.length(); i++) {
+            Long key = gram(description, i);
+            Set<Task> posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(task);
+                if (posting.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds all tasks whose description contains the keyword
+     * @param keyword - search keyword, at least {@link #GRAM_LENGTH} characters long
+     * @return matching tasks in tasklist order
+     */
+    List<Task> search(String keyword) {
+        assert keyword.length() >= GRAM_LENGTH;
+        Set<Task> smallest = null;
+        for (int i = 0; i + GRAM_LENGTH <= keyword.length(); i++) {
+            Set<Task> posting = postings.get(gram(keyword, i));
+            if (posting == null) {
+                return List.of();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        ArrayList<Task> matches = new ArrayList<>();
+        for (Task task : smallest) {
+            if (task.description.contains(keyword)) {
+                matches.add(task);
+            }
+        }
+        matches.sort(Comparator.comparing(sequence::get));
+        return matches;
+    }
+
+    /**
+     * Packs the three characters starting at {@code index} into one key
+     */
+    private static Long gram(String text, int index) {
+        return ((long) text.charAt(index) << 32)
+                | ((long) text.charAt(index + 1) << 16)
+                | text.charAt(index + 2);
+    }
+}
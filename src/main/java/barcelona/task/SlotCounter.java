@@ -0,0 +1,75 @@
+package barcelona.task;
+
+import java.util.Arrays;
+
+/**
+ * Fenwick tree that counts the occupied slots of a task sequence.
+ * <p>
+ * Sequences leave an empty slot behind when a task is removed. This tree maps
+ * between a display index, which only counts occupied slots, and a slot in
+ * O(log n) either way.
+ * </p>
+ */
+class SlotCounter {
+    private int[] tree;
+
+    /**
+     * Creates a counter with every slot empty
+     * @param capacity - number of slots
+     */
+    SlotCounter(int capacity) {
+        this.tree = new int[capacity + 1];
+    }
+
+    void increment(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Counts the occupied slots from 0 to {@code slot}, inclusive
+     */
+    int prefixCount(int slot) {
+        int count = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    /**
+     * Finds the slot of the occupied slot at a display index by descending the tree
+     * @param index - display index, smaller than the number of occupied slots
+     */
+    int slotOf(int index) {
+        int capacity = tree.length - 1;
+        int position = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(capacity); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= capacity && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Resizes the tree to a new capacity with only the first slots occupied, in O(n)
+     * @param capacity - number of slots
+     * @param occupied - number of occupied slots at the start
+     */
+    void reset(int capacity, int occupied) {
+        int[] rebuilt = new int[capacity + 1];
+        Arrays.fill(rebuilt, 1, occupied + 1, 1);
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+        tree = rebuilt;
+    }
+}
@@ -10,7 +10,8 @@ package barcelona.task;
  */
 public abstract class Task {
     protected String description;
-    protected boolean isDone;
+    protected volatile boolean isDone;
+    private long id;
 
     /**
      * Parent class constructor
@@ -21,6 +22,30 @@ public abstract class Task {
         this.isDone = false;
     }
 
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * Returns the ID of the task, or 0 if it has not been added to a tasklist yet
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Sets the ID of the task
+     * <p>Only used to restore persisted IDs; {@link TaskList} gives new tasks their IDs.</p>
+     * @param id - positive ID, unique within the tasklist
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public boolean isDone() {
+        return this.isDone;
+    }
+
     public String getStatusIcon() {
         return (isDone ? "X" : " "); // mark done task with X
     }
@@ -1,30 +1,153 @@
 package barcelona.task;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import barcelona.metrics.Histogram;
+import barcelona.metrics.Metrics;
 
 /**
  * Represents a collection of {@link Task} objects.
  * <p>
- * The {@code TaskList} class provides a wrapper around an
- * {@link ArrayList} of tasks, offering convenient methods for
- * adding, removing, retrieving, and managing tasks.
+ * The {@code TaskList} class keeps tasks in display order, offering
+ * convenient methods for adding, removing, retrieving, and managing tasks.
+ * </p>
+ * <p>
+ * Every task in the list has a unique ID that stays the same while other
+ * tasks are added or removed, and is persisted with the task. Tasks are held
+ * in a {@link TaskSequence}, so looking up, marking or removing a task by its
+ * display index or by its ID takes O(log n).
+ * </p>
+ * <p>
+ * A trigram index over the descriptions and a time index over the deadlines
+ * are kept in sync with the list so that searches do not have to scan every
+ * task. Changes
+ * must therefore go through this class rather than {@link #getList()}.
+ * </p>
+ * <p>
+ * For very large lists, {@link #compact} creates a tasklist that keeps its
+ * tasks in a {@link CompactTaskSequence} instead. It has no search or time
+ * index, since those would keep a task object alive for every task, so
+ * searches scan the list. Its tasks are created on demand, so a task returned
+ * by one call is not the same object as the one returned by the next.
+ * </p>
+ * <p>
+ * A tasklist can be shared between threads. Changes are serialized by the write
+ * lock of a {@link StampedLock}, lookups of a single task are optimistic reads
+ * that do not lock at all unless a change interleaves, and readers that walk
+ * the list share the read lock. {@link #getList()} returns a copy, so callers
+ * such as {@code Storage} can iterate it without holding up other threads.
+ * {@link #snapshot()} returns a read-only copy that is shared by every caller
+ * until the next change.
  * </p>
  */
 public class TaskList {
-    private final ArrayList<Task> taskList;
+    private static final Histogram LIST_LATENCY = Metrics.histogram("tasklist.list");
+    private static final Histogram FILTER_LATENCY = Metrics.histogram("tasklist.filter");
+
+    private final TaskStore taskList;
+    private final SearchIndex searchIndex;
+    private final DeadlineIndex deadlineIndex;
+    private final StampedLock lock = new StampedLock();
+    /** Copy handed out by {@link #snapshot()}, dropped by every change; only set under the lock */
+    private volatile List<Task> snapshot;
+    private long nextId = 1;
 
+    /**
+     * Creates a tasklist from loaded tasks and indexes them
+     * @param taskList - tasks in display order
+     */
     public TaskList(ArrayList<Task> taskList) {
-        this.taskList = taskList;
+        this(new TaskSequence(), new SearchIndex(), new DeadlineIndex(), taskList);
     }
 
     public TaskList() {
-        this.taskList = new ArrayList<>();
+        this(new ArrayList<>());
+    }
+
+    private TaskList(TaskStore store, SearchIndex searchIndex, DeadlineIndex deadlineIndex,
+            ArrayList<Task> taskList) {
+        this.taskList = store;
+        this.searchIndex = searchIndex;
+        this.deadlineIndex = deadlineIndex;
+        nextId = assignIds(taskList);
+        for (Task task : taskList) {
+            this.taskList.add(task);
+            index(task);
+        }
     }
 
+    /**
+     * Creates a memory-compact tasklist from loaded tasks
+     * <p>The tasks are copied into primitive columns, so the given objects can
+     * be dropped afterwards. Changing them later has no effect on the tasklist.</p>
+     * @param taskList - tasks in display order
+     * @return tasklist backed by a {@link CompactTaskSequence}
+     */
+    public static TaskList compact(ArrayList<Task> taskList) {
+        return new TaskList(new CompactTaskSequence(taskList.size()), null, null, taskList);
+    }
+
+    /**
+     * Checks whether the tasks are kept in primitive columns, see {@link #compact}
+     */
+    public boolean isCompact() {
+        return searchIndex == null;
+    }
+
+    /**
+     * Gives an ID to every task that has none or shares one with an earlier task.
+     * <p>New IDs are handed out in list order, counting up from the largest
+     * existing ID, so the same tasks always get the same IDs.</p>
+     * @param tasks - tasks in display order
+     * @return the next unused ID
+     */
+    public static long assignIds(List<Task> tasks) {
+        long maxId = 0;
+        for (Task task : tasks) {
+            maxId = Math.max(maxId, task.getId());
+        }
+        long nextId = maxId + 1;
+        HashSet<Long> seen = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.getId() <= 0 || !seen.add(task.getId())) {
+                task.setId(nextId++);
+                seen.add(task.getId());
+            }
+        }
+        return nextId;
+    }
+
+    /**
+     * Takes a snapshot of the tasks
+     * @return copy of the tasks in display order, unaffected by later changes
+     */
     public ArrayList<Task> getList() {
-        return this.taskList;
+        return read(this.taskList::toList);
+    }
+
+    /**
+     * Takes a read-only snapshot of the tasks, which is shared until the tasklist changes
+     * @return unmodifiable copy of the tasks in display order, unaffected by later changes
+     */
+    public List<Task> snapshot() {
+        List<Task> shared = snapshot;
+        if (shared != null) {
+            return shared;
+        }
+        return read(() -> {
+            if (snapshot == null) {
+                snapshot = Collections.unmodifiableList(this.taskList.toList());
+            }
+            return snapshot;
+        });
     }
 
     /**
@@ -32,37 +155,101 @@ public class TaskList {
      * @return String to be displayed to user in console
      */
     public String list() {
-        return listAsString(this.taskList);
+        long start = Metrics.start();
+        String listed = read(() -> listAsString(this.taskList.toList()));
+        LIST_LATENCY.recordSince(start);
+        return listed;
     }
 
     /**
      * Marks a task as done
      * @param index - Index of task in tasklist
+     * @return the task that was marked
      */
-    public void markDone(int index) {
-        this.taskList.get(index).markAsDone();
+    public Task markDone(int index) {
+        return write(() -> this.taskList.setDone(index, true));
     }
 
     /**
      * Marks a task as undone
      * @param index - Index of task in tasklist
+     * @return the task that was unmarked
      */
-    public void markUndone(int index) {
-        this.taskList.get(index).markAsUndone();
+    public Task markUndone(int index) {
+        return write(() -> this.taskList.setDone(index, false));
+    }
+
+    /**
+     * Marks the tasks at several indices as done
+     * @param indices - indices of tasks in tasklist
+     * @return the tasks that were marked, in display order
+     */
+    public List<Task> markDone(BitSet indices) {
+        return write(() -> setDone(indices, true));
+    }
+
+    /**
+     * Marks the tasks at several indices as undone
+     * @param indices - indices of tasks in tasklist
+     * @return the tasks that were unmarked, in display order
+     */
+    public List<Task> markUndone(BitSet indices) {
+        return write(() -> setDone(indices, false));
+    }
+
+    private List<Task> setDone(BitSet indices, boolean isDone) {
+        ArrayList<Task> tasks = new ArrayList<>(indices.cardinality());
+        for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
+            tasks.add(this.taskList.setDone(index, isDone));
+        }
+        return tasks;
     }
 
     public Task getTask(int index) {
-        return this.taskList.get(index);
+        return readOptimistically(() -> this.taskList.get(index));
+    }
+
+    public int size() {
+        return readOptimistically(this.taskList::size);
+    }
+
+    /**
+     * Finds a task by its ID
+     * @param id - ID of the task
+     * @return the task, or null if there is none
+     */
+    public Task getById(long id) {
+        return read(() -> this.taskList.getById(id));
+    }
+
+    /**
+     * Finds the display index of a task by its ID
+     * @param id - ID of the task
+     * @return index of the task in tasklist, or -1 if there is none
+     */
+    public int indexOf(long id) {
+        return read(() -> this.taskList.indexOf(id));
     }
 
     /**
      * Adds a task to tasklist
+     * <p>Tasks without an ID, or with one already in use, are given a new ID.</p>
      * @param tasks - List of tasks to be added
      * @return Size of new Tasklist
      */
     public int add(Task... tasks) {
-        this.taskList.addAll(Arrays.asList(tasks));
-        return taskList.size();
+        return write(() -> {
+            for (Task task : tasks) {
+                if (task.getId() <= 0 || !this.taskList.canAdd(task.getId())) {
+                    task.setId(nextId++);
+                } else {
+                    nextId = Math.max(nextId, task.getId() + 1);
+                }
+                this.taskList.add(task);
+                index(task);
+            }
+            return taskList.size();
+        });
     }
 
     /**
@@ -71,18 +258,179 @@ public class TaskList {
      * @return Size of new Tasklist
      */
     public int remove(Task toRemove) {
-        this.taskList.remove(toRemove);
-        return this.taskList.size();
+        return write(() -> {
+            if (this.taskList.remove(toRemove)) {
+                unindex(toRemove);
+            }
+            return this.taskList.size();
+        });
+    }
+
+    /**
+     * Removes a task from tasklist by its ID
+     * @param id - ID of the task
+     * @return the removed task, or null if there is none
+     */
+    public Task removeById(long id) {
+        return write(() -> {
+            Task removed = this.taskList.removeById(id);
+            if (removed != null) {
+                unindex(removed);
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Removes the task at an index from tasklist
+     * @param index - Index of task in tasklist
+     * @return the removed task
+     */
+    public Task remove(int index) {
+        return write(() -> {
+            Task removed = this.taskList.remove(index);
+            unindex(removed);
+            return removed;
+        });
+    }
+
+    /**
+     * Removes the tasks at several indices from tasklist in one batch
+     * @param indices - indices of tasks in tasklist
+     * @return the removed tasks, in display order
+     */
+    public List<Task> removeAll(BitSet indices) {
+        return write(() -> {
+            ArrayList<Task> removed = this.taskList.removeAll(indices);
+            for (Task task : removed) {
+                unindex(task);
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Finds the indices of the tasks whose description contains the keyword
+     * @param keyword - search keyword
+     * @return indices of the matching tasks in tasklist
+     */
+    public BitSet indicesOf(String keyword) {
+        return read(() -> {
+            BitSet indices = new BitSet();
+            if (isCompact() || keyword.length() < SearchIndex.GRAM_LENGTH) {
+                ArrayList<Task> tasks = this.taskList.toList();
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (tasks.get(i).description.contains(keyword)) {
+                        indices.set(i);
+                    }
+                }
+                return indices;
+            }
+            for (Task task : searchIndex.search(keyword)) {
+                indices.set(this.taskList.indexOf(task.getId()));
+            }
+            return indices;
+        });
+    }
+
+    /**
+     * Finds the indices of the tasks with the given completion status
+     * @param isDone - completion status to look for
+     * @return indices of the matching tasks in tasklist
+     */
+    public BitSet indicesWithStatus(boolean isDone) {
+        return read(() -> {
+            BitSet indices = new BitSet();
+            ArrayList<Task> tasks = this.taskList.toList();
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).isDone == isDone) {
+                    indices.set(i);
+                }
+            }
+            return indices;
+        });
     }
 
     /**
      * Filter tasklist by keyword
+     * <p>Keywords shorter than a trigram are matched by scanning the list,
+     * longer ones are resolved through the search index.</p>
      * @param keyword - search keyword for tasklist
      * @return filtered list as string
      */
     public String filter(String keyword) {
-        return listAsString(this.taskList.stream()
-                .filter((Task a) -> a.description.contains(keyword)).toList());
+        long start = Metrics.start();
+        String filtered;
+        if (isCompact() || keyword.length() < SearchIndex.GRAM_LENGTH) {
+            filtered = read(() -> listAsString(this.taskList.toList().stream()
+                    .filter((Task a) -> a.description.contains(keyword)).toList()));
+        } else {
+            filtered = read(() -> listAsString(searchIndex.search(keyword)));
+        }
+        FILTER_LATENCY.recordSince(start);
+        return filtered;
+    }
+
+    /**
+     * Lists deadlines due at or before the given time, earliest first
+     * @param until - latest due date to include
+     * @return matching deadlines as string
+     */
+    public String dueBefore(LocalDateTime until) {
+        if (isCompact()) {
+            return read(() -> listAsString(scanDeadlines(LocalDateTime.MIN, until)));
+        }
+        return read(() -> listAsString(deadlineIndex.dueBefore(until)));
+    }
+
+    /**
+     * Lists deadlines due within the given window, earliest first
+     * @param from - earliest due date to include
+     * @param to - latest due date to include
+     * @return matching deadlines as string
+     */
+    public String dueBetween(LocalDateTime from, LocalDateTime to) {
+        if (isCompact()) {
+            return read(() -> listAsString(scanDeadlines(from, to)));
+        }
+        return read(() -> listAsString(deadlineIndex.dueBetween(from, to)));
+    }
+
+    /**
+     * Lists deadlines that are past due and not done yet, earliest first
+     * @param now - current time
+     * @return overdue deadlines as string
+     */
+    public String overdue(LocalDateTime now) {
+        return read(() -> listAsString((isCompact() ? scanDeadlines(LocalDateTime.MIN, now)
+                : deadlineIndex.dueBefore(now)).stream()
+                .filter((Task a) -> !a.isDone && ((Deadlines) a).getDeadline().isBefore(now)).toList()));
+    }
+
+    /**
+     * Finds deadlines due within the given window by scanning the list, for tasklists without a time index
+     * @return deadlines ordered by due date, and by list order within the same due date
+     */
+    private List<Task> scanDeadlines(LocalDateTime from, LocalDateTime to) {
+        return this.taskList.toList().stream()
+                .filter((Task a) -> a instanceof Deadlines deadline
+                        && !deadline.getDeadline().isBefore(from) && !deadline.getDeadline().isAfter(to))
+                .sorted(Comparator.comparing((Task a) -> ((Deadlines) a).getDeadline()))
+                .toList();
+    }
+
+    private void index(Task task) {
+        if (!isCompact()) {
+            searchIndex.add(task);
+            deadlineIndex.add(task);
+        }
+    }
+
+    private void unindex(Task task) {
+        if (!isCompact()) {
+            searchIndex.remove(task);
+            deadlineIndex.remove(task);
+        }
     }
 
     /**
@@ -97,4 +445,51 @@ public class TaskList {
         }
         return string.toString();
     }
+
+    /**
+     * Runs a change while holding the write lock
+     */
+    private <T> T write(Supplier<T> change) {
+        long stamp = lock.writeLock();
+        try {
+            snapshot = null;
+            return change.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs a reader that walks the list or an index while holding the read lock
+     */
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a reader that looks up a single task without locking, and again under the read lock
+     * if a change happened in the meantime
+     */
+    private <T> T readOptimistically(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // an interleaved change can leave the sequence half updated; retry under the lock
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        return read(reader);
+    }
 }
@@ -0,0 +1,191 @@
+package barcelona.task;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Order-statistic sequence of tasks in display order.
+ * <p>
+ * Tasks are kept in slots in the order they were appended. A removed task
+ * leaves an empty slot behind instead of shifting the tasks after it, and a
+ * {@link SlotCounter} over the slots counts the tasks still present, so lookup,
+ * removal and rank are all O(log n). Empty slots are compacted away once they
+ * outnumber the tasks.
+ * </p>
+ */
+class TaskSequence implements TaskStore {
+    private static final int MIN_CAPACITY = 16;
+
+    private Task[] slots = new Task[MIN_CAPACITY];
+    private final SlotCounter counter = new SlotCounter(MIN_CAPACITY);
+    private final HashMap<Long, Integer> slotById = new HashMap<>();
+    private int used;
+    private int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Task task) {
+        assert !slotById.containsKey(task.getId());
+        if (used == slots.length) {
+            resize(Math.max(MIN_CAPACITY, size * 2));
+        }
+        slots[used] = task;
+        slotById.put(task.getId(), used);
+        counter.increment(used, 1);
+        used++;
+        size++;
+    }
+
+    @Override
+    public boolean canAdd(long id) {
+        return !slotById.containsKey(id);
+    }
+
+    @Override
+    public Task get(int index) {
+        return slots[slotOf(index)];
+    }
+
+    @Override
+    public Task setDone(int index, boolean isDone) {
+        Task task = get(index);
+        if (isDone) {
+            task.markAsDone();
+        } else {
+            task.markAsUndone();
+        }
+        return task;
+    }
+
+    @Override
+    public Task remove(int index) {
+        int slot = slotOf(index);
+        Task removed = slots[slot];
+        removeSlot(slot);
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>A few tasks are removed one by one. Larger batches are dropped in a
+     * single pass over the slots that also compacts them and rebuilds the tree,
+     * so the cost is O(n) however many tasks are removed.</p>
+     */
+    @Override
+    public ArrayList<Task> removeAll(BitSet indices) {
+        assert indices.length() <= size;
+        int count = indices.cardinality();
+        ArrayList<Task> removed = new ArrayList<>(count);
+        if (count < size / Integer.SIZE) {
+            for (int index = indices.previousSetBit(size - 1); index >= 0;
+                    index = indices.previousSetBit(index - 1)) {
+                removed.add(remove(index));
+            }
+            Collections.reverse(removed);
+            return removed;
+        }
+        int index = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[slot] == null) {
+                continue;
+            }
+            if (indices.get(index)) {
+                removed.add(slots[slot]);
+                slotById.remove(slots[slot].getId());
+                slots[slot] = null;
+            }
+            index++;
+        }
+        size -= count;
+        resize(Math.max(MIN_CAPACITY, size * 2));
+        return removed;
+    }
+
+    @Override
+    public Task removeById(long id) {
+        Integer slot = slotById.get(id);
+        if (slot == null) {
+            return null;
+        }
+        Task removed = slots[slot];
+        removeSlot(slot);
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Only the same task object counts, not another task with the same ID.</p>
+     */
+    @Override
+    public boolean remove(Task task) {
+        if (getById(task.getId()) != task) {
+            return false;
+        }
+        removeById(task.getId());
+        return true;
+    }
+
+    @Override
+    public Task getById(long id) {
+        Integer slot = slotById.get(id);
+        return slot == null ? null : slots[slot];
+    }
+
+    @Override
+    public int indexOf(long id) {
+        Integer slot = slotById.get(id);
+        return slot == null ? -1 : counter.prefixCount(slot) - 1;
+    }
+
+    @Override
+    public ArrayList<Task> toList() {
+        ArrayList<Task> tasks = new ArrayList<>(size);
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[slot] != null) {
+                tasks.add(slots[slot]);
+            }
+        }
+        return tasks;
+    }
+
+    private void removeSlot(int slot) {
+        slotById.remove(slots[slot].getId());
+        slots[slot] = null;
+        counter.increment(slot, -1);
+        size--;
+        if (used - size > Math.max(size, MIN_CAPACITY)) {
+            resize(Math.max(MIN_CAPACITY, size * 2));
+        }
+    }
+
+    private int slotOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return counter.slotOf(index);
+    }
+
+    /**
+     * Moves the tasks into a fresh array without empty slots and rebuilds the tree in O(n)
+     */
+    private void resize(int capacity) {
+        Task[] compacted = new Task[capacity];
+        int next = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[slot] != null) {
+                compacted[next] = slots[slot];
+                slotById.put(slots[slot].getId(), next);
+                next++;
+            }
+        }
+        slots = compacted;
+        counter.reset(capacity, next);
+        used = next;
+    }
+}
@@ -0,0 +1,85 @@
+package barcelona.task;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Tasks of a {@link TaskList} in display order, addressed by display index or by ID.
+ * <p>
+ * {@link TaskSequence} keeps the task objects themselves. {@link CompactTaskSequence}
+ * keeps the fields of the tasks in primitive columns and hands out task objects
+ * created on demand, so changes must go through the store instead of the task.
+ * </p>
+ */
+interface TaskStore {
+    int size();
+
+    /**
+     * Appends a task with an ID that is not in the store yet
+     * @param task - task to append
+     */
+    void add(Task task);
+
+    /**
+     * Checks whether a task can be appended with the ID it already has
+     * @param id - ID of the task, positive
+     * @return false if the task has to be given a new ID first
+     */
+    boolean canAdd(long id);
+
+    /**
+     * Returns the task at a display index
+     * @throws IndexOutOfBoundsException if the index is not in the store
+     */
+    Task get(int index);
+
+    /**
+     * Sets the completion status of the task at a display index
+     * @return the task, with its new status
+     * @throws IndexOutOfBoundsException if the index is not in the store
+     */
+    Task setDone(int index, boolean isDone);
+
+    /**
+     * Removes the task at a display index
+     * @return the removed task
+     * @throws IndexOutOfBoundsException if the index is not in the store
+     */
+    Task remove(int index);
+
+    /**
+     * Removes the tasks at several display indices
+     * @param indices - display indices of the tasks to remove, all within the store
+     * @return the removed tasks in display order
+     */
+    ArrayList<Task> removeAll(BitSet indices);
+
+    /**
+     * Removes the task with the given ID
+     * @return the removed task, or null if there is none
+     */
+    Task removeById(long id);
+
+    /**
+     * Removes a task that was handed out by this store
+     * @return false if the task is not in the store
+     */
+    boolean remove(Task task);
+
+    /**
+     * Returns the task with the given ID
+     * @return the task, or null if there is none
+     */
+    Task getById(long id);
+
+    /**
+     * Returns the display index of the task with the given ID
+     * @return the index, or -1 if there is no such task
+     */
+    int indexOf(long id);
+
+    /**
+     * Copies the tasks in display order
+     */
+    ArrayList<Task> toList();
+}
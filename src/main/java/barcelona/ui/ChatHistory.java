@@ -0,0 +1,65 @@
+package barcelona.ui;
+
+import java.util.List;
+
+import barcelona.task.Task;
+
+/**
+ * Ring buffer of the most recent chat messages.
+ * <p>
+ * Messages are addressed by their position in the whole session, starting at
+ * 0 for the first message. Once the buffer is full, every new message
+ * overwrites the oldest one, so memory use stays flat however long the
+ * session runs. Task listings keep the snapshot taken when the command ran;
+ * listings with no change in between share one snapshot.
+ * </p>
+ */
+class ChatHistory {
+    /**
+     * One chat message, kept as data so it can be rendered again when paged back in
+     * @param text - message text, or the header of a task listing
+     * @param isUser - true if the user sent the message
+     * @param tasks - read-only snapshot of the tasks of a task listing, or null for a plain message
+     */
+    record Message(String text, boolean isUser, List<Task> tasks) {
+    }
+
+    private final Message[] messages;
+    private long end;
+
+    ChatHistory(int capacity) {
+        assert capacity > 0;
+        this.messages = new Message[capacity];
+    }
+
+    /**
+     * Appends a message, dropping the oldest one if the buffer is full
+     * @param message - message to append
+     */
+    void add(Message message) {
+        messages[(int) (end % messages.length)] = message;
+        end++;
+    }
+
+    /**
+     * Returns the message at a session position between {@link #first()} and {@link #end()}
+     */
+    Message get(long position) {
+        assert position >= first() && position < end;
+        return messages[(int) (position % messages.length)];
+    }
+
+    /**
+     * Returns the session position of the oldest message still kept
+     */
+    long first() {
+        return Math.max(0, end - messages.length);
+    }
+
+    /**
+     * Returns the session position the next message will be added at
+     */
+    long end() {
+        return end;
+    }
+}
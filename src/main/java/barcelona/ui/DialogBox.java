@@ -1,41 +1,58 @@
 package barcelona.ui;
 
-import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 
+import barcelona.task.Task;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
 
 /**
- * This box shows the messages by chatbot/user
+ * This box shows the messages by chatbot/user.
+ * <p>
+ * The layout is built in code rather than loaded from FXML, so creating a
+ * message does not parse a template or reflectively inject fields.
+ * </p>
  */
 public class DialogBox extends HBox {
+    private static final String STYLESHEET = Objects.requireNonNull(
+            DialogBox.class.getResource("/css/dialog-box.css")).toExternalForm();
 
-    @FXML
-    private Label dialog;
-    @FXML
-    private ImageView displayPicture;
+    private final Label dialog;
+    private final ImageView displayPicture;
 
     private DialogBox(String text, Image img) {
-        try {
-            FXMLLoader fxmlLoader = new FXMLLoader(MainWindow.class.getResource("/view/DialogBox.fxml"));
-            fxmlLoader.setController(this);
-            fxmlLoader.setRoot(this);
-            fxmlLoader.load();
-        } catch (IOException e) {
-            System.out.println(e.getMessage());
-        }
-
-        dialog.setText(text);
-        displayPicture.setImage(img);
+        dialog = new Label(text);
+        dialog.setMinHeight(Region.USE_PREF_SIZE);
+        dialog.setWrapText(true);
+        dialog.setPadding(new Insets(10.0));
+        dialog.getStylesheets().add(STYLESHEET);
+        HBox.setMargin(dialog, new Insets(1.0, 10.0, 0, 0));
+
+        displayPicture = new ImageView(img);
+        displayPicture.setId("displayPicture");
+        displayPicture.setFitHeight(40.0);
+        displayPicture.setFitWidth(40.0);
+        displayPicture.setPickOnBounds(true);
+        displayPicture.setPreserveRatio(true);
+
+        setAlignment(Pos.CENTER_RIGHT);
+        setMaxHeight(Double.MAX_VALUE);
+        setMaxWidth(Double.MAX_VALUE);
+        setPrefWidth(400.0);
+        setPadding(new Insets(15.0, 5.0, 15.0, 5.0));
+        getChildren().addAll(dialog, displayPicture);
     }
 
     private void flip() {
@@ -55,4 +72,22 @@ public class DialogBox extends HBox {
         db.flip();
         return db;
     }
+
+    /**
+     * Creates a reply showing the tasks as rows of a {@link TaskListView} below the header
+     * @param header - text shown above the tasks
+     * @param tasks - tasks to show, in list order
+     * @param i - chatbot display picture
+     * @return dialog box containing the task rows
+     */
+    public static DialogBox getTaskListDialog(String header, List<Task> tasks, Image i) {
+        var db = getBarcelonaDialog(header, i);
+        int position = db.getChildren().indexOf(db.dialog);
+        db.getChildren().remove(db.dialog);
+        TaskListView taskListView = new TaskListView(tasks);
+        VBox content = new VBox(5, db.dialog, taskListView);
+        HBox.setHgrow(content, Priority.ALWAYS);
+        db.getChildren().add(position, content);
+        return db;
+    }
 }
@@ -0,0 +1,107 @@
+package barcelona.ui;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints log messages to standard output on a background thread.
+ * <p>
+ * Messages wait in a bounded queue. The thread takes everything that is
+ * queued and prints it with a single call, so a burst of messages costs one
+ * console write. When the queue is full, loggers block until there is room
+ * again, so messages are never dropped. Queued messages are printed before the
+ * JVM exits. A logger that is interrupted while waiting for room prints its
+ * message itself, after the queued ones.
+ * </p>
+ */
+final class LogWriter {
+    static final int CAPACITY = 4096;
+    private static final long EXIT_TIMEOUT_MILLIS = 1000;
+
+    static final LogWriter CONSOLE = new LogWriter();
+
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private long written;
+    private long printed;
+
+    private LogWriter() {
+        Thread thread = new Thread(this::run, "barcelona-log");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> awaitPrinted(EXIT_TIMEOUT_MILLIS)));
+    }
+
+    /**
+     * Queues a message, blocking while the queue is full
+     * @param message - message to print on its own line
+     */
+    void write(String message) {
+        synchronized (this) {
+            written++;
+        }
+        try {
+            queue.put(message);
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                written--;
+            }
+            // print it directly, but only after the messages queued before it
+            flush();
+            System.out.println(message);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until every message written so far is printed
+     */
+    void flush() {
+        awaitPrinted(0);
+    }
+
+    private synchronized void awaitPrinted(long timeoutMillis) {
+        long target = written;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (printed < target) {
+                if (timeoutMillis == 0) {
+                    wait();
+                    continue;
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        ArrayList<String> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            for (String message : batch) {
+                text.append(message).append(System.lineSeparator());
+            }
+            System.out.print(text);
+            System.out.flush();
+            synchronized (this) {
+                printed += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+            text.setLength(0);
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package barcelona.ui;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import barcelona.Barcelona;
+import barcelona.task.Task;
+import barcelona.ui.ChatHistory.Message;
 import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
@@ -19,8 +27,23 @@ import javafx.util.Duration;
 
 /**
  * Controller for the main GUI.
+ * <p>
+ * Messages are kept in a bounded {@link ChatHistory}, and only a window of at
+ * most {@link #MAX_LIVE_MESSAGES} of them is shown as dialog boxes. Older
+ * messages are rendered again when the user scrolls to the top of the window,
+ * and newer ones when the user scrolls back down.
+ * </p>
+ * <p>
+ * While Barcelona loads its task file in the background, the first page of
+ * tasks is shown as soon as it is parsed, and commands sent in the meantime
+ * are answered once loading has finished.
+ * </p>
  */
 public class MainWindow extends AnchorPane {
+    private static final int HISTORY_CAPACITY = 500;
+    private static final int MAX_LIVE_MESSAGES = 60;
+    private static final int PAGE_SIZE = 20;
+
     @FXML
     private ScrollPane scrollPane;
     @FXML
@@ -34,6 +57,13 @@ public class MainWindow extends AnchorPane {
 
     private Barcelona barcelona;
 
+    private final ChatHistory history = new ChatHistory(HISTORY_CAPACITY);
+    private long liveStart;
+    private boolean isFollowingLatest = true;
+    private CompletableFuture<Void> lastReply = CompletableFuture.completedFuture(null);
+    /** Whether the first page of a background load was shown; only used on the command thread */
+    private boolean isFirstPageShown;
+
     private final Image userImage = new Image(Objects.requireNonNull(this.getClass()
             .getResourceAsStream("/images/user-avatar.png")));
     private final Image barcelonaImage = new Image(Objects.requireNonNull(this.getClass()
@@ -44,7 +74,18 @@ public class MainWindow extends AnchorPane {
      */
     @FXML
     public void initialize() {
-        scrollPane.vvalueProperty().bind(dialogContainer.heightProperty());
+        dialogContainer.heightProperty().addListener((observable, oldHeight, newHeight) -> {
+            if (isFollowingLatest) {
+                scrollPane.setVvalue(scrollPane.getVmax());
+            }
+        });
+        scrollPane.vvalueProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue.doubleValue() <= scrollPane.getVmin()) {
+                pageOlder();
+            } else if (newValue.doubleValue() >= scrollPane.getVmax()) {
+                pageNewer();
+            }
+        });
         ImageView iconView = new ImageView(new Image("/images/send-icon.png"));
         iconView.setFitHeight(20);
         iconView.setFitWidth(20);
@@ -58,37 +99,61 @@ public class MainWindow extends AnchorPane {
     /** Injects the Duke instance */
     public void setBarcelona(Barcelona b) {
         barcelona = b;
+        if (b.isLoading()) {
+            addMessage(new Message("Loading your tasks...", false, null));
+            CompletableFuture<Message> loadedMessage = b.whenLoaded()
+                    .thenApply(count -> new Message("All " + count + " tasks are loaded.", false, null));
+            showInOrder(loadedMessage, CompletableFuture.completedFuture(null));
+        }
+    }
+
+    /**
+     * Shows the first batch of tasks of a background load, see {@link Barcelona#loadInBackground}
+     * @param batch - tasks parsed so far, called on Barcelona's command thread
+     */
+    public void showLoadedBatch(List<Task> batch) {
+        if (isFirstPageShown) {
+            return;
+        }
+        isFirstPageShown = true;
+        Message firstPage = new Message("Here are your first " + batch.size() + " tasks while the rest load:",
+                false, batch);
+        Platform.runLater(() -> addMessage(firstPage));
     }
 
     /**
      * Creates a dialog box containing user input, and appends it to
      * the dialog container. Clears the user input after processing.
+     * <p>
+     * The command runs on Barcelona's command thread while the reply pause
+     * plays, and the reply is shown once both are done. While the tasks are
+     * still loading, the command waits for them and the user is told so.
+     * </p>
      */
     @FXML
     private void handleUserInput() {
         if (userInput.getText().isEmpty()) {
             return;
         }
-        String reply = barcelona.getResponse(userInput.getText());
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(userInput.getText(), userImage)
-        );
+        String input = userInput.getText();
+        CompletableFuture<Message> reply;
+        if (barcelona.isListCommand(input)) {
+            reply = barcelona.getTasksAsync().thenApply(tasks ->
+                    new Message("Here are the " + tasks.size() + " tasks in your list:", false, tasks));
+        } else {
+            reply = barcelona.getResponseAsync(input).thenApply(text -> new Message(text, false, null));
+        }
+        addMessage(new Message(input, true, null));
+        if (barcelona.isLoading()) {
+            addMessage(new Message("Still loading your tasks, I will do this once they are all loaded.", false,
+                    null));
+        }
         userInput.clear();
+        CompletableFuture<Void> pauseDone = new CompletableFuture<>();
         PauseTransition pause = new PauseTransition(Duration.seconds(1));
-        pause.setOnFinished(event -> {
-            dialogContainer.getChildren().addAll(
-                    DialogBox.getBarcelonaDialog(reply, barcelonaImage)
-            );
-        });
+        pause.setOnFinished(event -> pauseDone.complete(null));
         pause.play();
-        if (reply.equals("Bye. Hope to see you again soon!")) {
-            PauseTransition exitTimeout = new PauseTransition(Duration.seconds(1));
-            exitTimeout.setOnFinished(event -> {
-                Stage stage = (Stage) dialogContainer.getScene().getWindow();
-                stage.close();
-            });
-            exitTimeout.play();
-        }
+        showInOrder(reply, pauseDone);
     }
 
     /**
@@ -102,15 +167,147 @@ public class MainWindow extends AnchorPane {
         );
         File selectedFile = fileChooser.showOpenDialog(null);
         if (selectedFile != null) {
-            String reply = barcelona.changeDirectory(selectedFile.getPath());
-            dialogContainer.getChildren().addAll(
-                    DialogBox.getBarcelonaDialog(reply, barcelonaImage)
-            );
+            CompletableFuture<Message> reply = barcelona.changeDirectoryAsync(selectedFile.getPath())
+                    .thenApply(text -> new Message(text, false, null));
+            showInOrder(reply, CompletableFuture.completedFuture(null));
         } else {
-            dialogContainer.getChildren().addAll(
-                    DialogBox.getBarcelonaDialog("No file selected", barcelonaImage)
-            );
+            addMessage(new Message("No file selected", false, null));
         }
         return;
     }
+
+    /**
+     * Shows a reply on the JavaFX thread once it is ready and every earlier reply has been shown
+     * @param reply - reply computed on the command thread
+     * @param ready - completes when the reply may be shown
+     */
+    private void showInOrder(CompletableFuture<Message> reply, CompletableFuture<Void> ready) {
+        CompletableFuture<Message> safeReply = reply.exceptionally(e ->
+                new Message("OOPS!!! Something went wrong: " + e.getMessage(), false, null));
+        lastReply = CompletableFuture.allOf(lastReply, safeReply, ready)
+                .thenRunAsync(() -> showReply(safeReply.join()), Platform::runLater);
+    }
+
+    private void showReply(Message reply) {
+        addMessage(reply);
+        if (reply.text().equals("Bye. Hope to see you again soon!")) {
+            PauseTransition exitTimeout = new PauseTransition(Duration.seconds(1));
+            exitTimeout.setOnFinished(event -> {
+                Stage stage = (Stage) dialogContainer.getScene().getWindow();
+                stage.close();
+            });
+            exitTimeout.play();
+        }
+    }
+
+    /**
+     * Records a message and shows it at the bottom of the chat
+     * @param message - message to add
+     */
+    private void addMessage(Message message) {
+        ObservableList<Node> live = dialogContainer.getChildren();
+        boolean isShowingLatest = liveStart + live.size() == history.end();
+        history.add(message);
+        isFollowingLatest = true;
+        if (isShowingLatest) {
+            live.add(render(message));
+            trimOldest(live);
+        } else {
+            showLatest(live);
+        }
+    }
+
+    /**
+     * Replaces the live messages with the most recent page of the history
+     */
+    private void showLatest(ObservableList<Node> live) {
+        liveStart = Math.max(history.first(), history.end() - PAGE_SIZE);
+        live.setAll(renderRange(liveStart, history.end()));
+    }
+
+    /**
+     * Shows the page of messages before the live window when the user scrolls to the top
+     */
+    private void pageOlder() {
+        long from = Math.max(history.first(), liveStart - PAGE_SIZE);
+        if (from >= liveStart) {
+            return;
+        }
+        ObservableList<Node> live = dialogContainer.getChildren();
+        Node anchor = live.isEmpty() ? null : live.get(0);
+        live.addAll(0, renderRange(from, liveStart));
+        liveStart = from;
+        int excess = live.size() - MAX_LIVE_MESSAGES;
+        if (excess > 0) {
+            live.remove(live.size() - excess, live.size());
+        }
+        isFollowingLatest = false;
+        if (anchor != null) {
+            scrollPane.layout();
+            scrollToContentY(anchor.getBoundsInParent().getMinY());
+        }
+    }
+
+    /**
+     * Shows the page of messages after the live window when the user scrolls to the bottom
+     */
+    private void pageNewer() {
+        ObservableList<Node> live = dialogContainer.getChildren();
+        long liveEnd = liveStart + live.size();
+        long to = Math.min(history.end(), liveEnd + PAGE_SIZE);
+        if (to <= liveEnd) {
+            isFollowingLatest = true;
+            return;
+        }
+        Node anchor = live.isEmpty() ? null : live.get(live.size() - 1);
+        live.addAll(renderRange(liveEnd, to));
+        trimOldest(live);
+        isFollowingLatest = to == history.end();
+        if (anchor != null && !isFollowingLatest) {
+            scrollPane.layout();
+            double viewportHeight = scrollPane.getViewportBounds().getHeight();
+            scrollToContentY(anchor.getBoundsInParent().getMaxY() - viewportHeight);
+        }
+    }
+
+    /**
+     * Removes the oldest live messages beyond {@link #MAX_LIVE_MESSAGES}
+     */
+    private void trimOldest(ObservableList<Node> live) {
+        int excess = live.size() - MAX_LIVE_MESSAGES;
+        if (excess > 0) {
+            live.remove(0, excess);
+            liveStart += excess;
+        }
+    }
+
+    /**
+     * Scrolls so that the given y coordinate of the dialog container is at the top of the viewport
+     */
+    private void scrollToContentY(double y) {
+        double scrollableHeight = dialogContainer.getHeight() - scrollPane.getViewportBounds().getHeight();
+        if (scrollableHeight <= 0) {
+            return;
+        }
+        double ratio = Math.max(0, Math.min(1, y / scrollableHeight));
+        scrollPane.setVvalue(scrollPane.getVmin() + ratio * (scrollPane.getVmax() - scrollPane.getVmin()));
+    }
+
+    private List<Node> renderRange(long from, long to) {
+        List<Node> nodes = new ArrayList<>((int) (to - from));
+        for (long position = from; position < to; position++) {
+            nodes.add(render(history.get(position)));
+        }
+        return nodes;
+    }
+
+    private DialogBox render(Message message) {
+        if (message.isUser()) {
+            return DialogBox.getUserDialog(message.text(), userImage);
+        }
+        if (message.tasks() != null) {
+            return DialogBox.getTaskListDialog(message.text(), message.tasks(), barcelonaImage);
+        }
+        return DialogBox.getBarcelonaDialog(message.text(), barcelonaImage);
+    }
 }
@@ -0,0 +1,41 @@
+package barcelona.ui;
+
+import java.util.List;
+
+import barcelona.task.Task;
+import javafx.collections.FXCollections;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+/**
+ * Shows a tasklist as a virtualized list of rows.
+ * <p>
+ * Only the rows that are currently visible are laid out, and every row has the
+ * same fixed height, so scrolling through a very large tasklist does not have
+ * to measure or render the tasks that are off screen.
+ * </p>
+ */
+public class TaskListView extends ListView<Task> {
+    private static final double ROW_HEIGHT = 24.0;
+    private static final int MAX_VISIBLE_ROWS = 15;
+
+    /**
+     * Creates a view over the given tasks without copying them
+     * @param tasks - tasks to show, in list order
+     */
+    public TaskListView(List<Task> tasks) {
+        super(FXCollections.observableList(tasks));
+        setFixedCellSize(ROW_HEIGHT);
+        setPrefHeight(ROW_HEIGHT * Math.min(tasks.size(), MAX_VISIBLE_ROWS) + 2);
+        setFocusTraversable(false);
+        setCellFactory(view -> new TaskCell());
+    }
+
+    private static class TaskCell extends ListCell<Task> {
+        @Override
+        protected void updateItem(Task task, boolean empty) {
+            super.updateItem(task, empty);
+            setText(empty || task == null ? null : (getIndex() + 1) + ". " + task);
+        }
+    }
+}
@@ -1,15 +1,84 @@
 package barcelona.ui;
 
+import java.util.Locale;
+
 /**
  * Implementation for non-GUI version of chatbot
+ * <p>
+ * Messages below the logger's {@link Level} are dropped before they are
+ * formatted. The rest are printed by a single background thread through a
+ * bounded queue, so logging does not wait for the console unless the queue is
+ * full. The level is {@link Level#INFO} unless the {@code barcelona.log}
+ * system property names another one, e.g. {@code -Dbarcelona.log=debug}.
+ * </p>
  */
 public class Ui {
+    /**
+     * Severity of a log message, from least to most severe
+     */
+    public enum Level {
+        /** Per-task detail, e.g. every line that was loaded */
+        DEBUG,
+        /** Progress, e.g. a summary of a load */
+        INFO,
+        /** Problems that were recovered from, e.g. corrupted lines */
+        WARN,
+        /** Failures */
+        ERROR
+    }
+
     private static final String LINE = "____________________________________________________________";
+    private static final Level DEFAULT_LEVEL = parseLevel(System.getProperty("barcelona.log"));
+
+    private volatile Level level = DEFAULT_LEVEL;
+
+    private static Level parseLevel(String name) {
+        try {
+            return name == null ? Level.INFO : Level.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * Sets the least severe level that is logged
+     * @param level - minimum level, {@link Level#INFO} by default
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Checks whether messages of a level are logged, so callers can skip building them
+     * @param level - level of the message
+     */
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) >= 0;
+    }
+
     /**
      * To log errors in the non-GUI format
-     * @param message - message to be logged
+     * @param message - message to be logged, at {@link Level#WARN}
      */
     public void log(String message) {
-        System.out.println(LINE + "\n" + message + "\n" + LINE);
+        log(Level.WARN, message);
+    }
+
+    /**
+     * Logs a message in the non-GUI format, unless its level is filtered out
+     * @param level - level of the message
+     * @param message - message to be logged
+     */
+    public void log(Level level, String message) {
+        if (isEnabled(level)) {
+            LogWriter.CONSOLE.write(LINE + "\n" + message + "\n" + LINE);
+        }
+    }
+
+    /**
+     * Blocks until every message logged so far is printed
+     */
+    public static void flush() {
+        LogWriter.CONSOLE.flush();
     }
 }
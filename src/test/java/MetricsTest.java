@@ -0,0 +1,63 @@
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import barcelona.metrics.Histogram;
+import barcelona.metrics.Metrics;
+import barcelona.parser.Parser;
+import barcelona.storage.Storage;
+import barcelona.task.TaskList;
+import barcelona.ui.Ui;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+    @Test
+    public void histogram_percentiles_within_bucket_width() {
+        // percentiles land in the bucket of the exact value, which is at most 12.5% wider
+        Histogram histogram = Metrics.histogram("test.histogram");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, String.valueOf(p50));
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, String.valueOf(p99));
+    }
+
+    @Test
+    public void stats_command_and_mbean_report_latency(@TempDir Path dir) throws Exception {
+        // replies, loads and writes show up in the stats reply and over JMX, and nothing is recorded while disabled
+        Metrics.reset();
+        Storage storage = new Storage(dir.resolve("tasks.txt").toString(), new Ui());
+        TaskList tasks = new TaskList(storage.load());
+        Parser parser = new Parser();
+        parser.reply("todo read book", tasks, storage);
+        String report = parser.reply("stats", tasks, storage);
+        assertTrue(report.contains("reply.todo: 1, "), report);
+        assertTrue(report.contains("storage.load: 1, "), report);
+        assertTrue(report.contains("storage.write: 1, "), report);
+
+        assertTrue(Metrics.registerMBean());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertTrue((Long) server.getAttribute(name, "BytesWritten") > 0);
+        assertEquals(1L, server.getAttribute(name, "TasksWritten"));
+        TabularData latencies = (TabularData) server.getAttribute(name, "Latencies");
+        CompositeData load = (CompositeData) latencies.get(new Object[] {"storage.load"}).get("value");
+        assertEquals(1L, load.get("count"));
+
+        Metrics.setEnabled(false);
+        parser.reply("list", tasks, storage);
+        Metrics.setEnabled(true);
+        assertFalse(Metrics.report().contains("reply.list"));
+    }
+}
@@ -1,7 +1,26 @@
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Adler32;
+
+import barcelona.Barcelona;
 import barcelona.storage.Storage;
+import barcelona.storage.TaskFileCache;
+import barcelona.task.Task;
+import barcelona.task.TaskList;
+import barcelona.task.Todos;
 import barcelona.ui.Ui;
 
 public class StorageTest {
@@ -22,4 +41,444 @@ public class StorageTest {
         // loading a file that does not exist creates an empty file & returns an empty array
         assertEquals(0, new Storage("./test/storageTest3.txt", new Ui()).load().size());
     }
+
+    @Test
+    public void journal_replayed_on_load_test(@TempDir Path dir) throws Exception {
+        // changes recorded in the journal are applied on top of the snapshot when reloading
+        String path = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(path, new Ui());
+        storage.enableJournal(Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList tasks = new TaskList(storage.load());
+        tasks.add(new Todos("read book"));
+        storage.recordAdd(tasks.getTask(0));
+        tasks.add(new Todos("join sports club"));
+        storage.recordAdd(tasks.getTask(1));
+        storage.recordMark(tasks.markDone(1));
+        storage.recordDelete(tasks.remove(0));
+        long id = tasks.getTask(0).getId();
+        storage.save(tasks);
+        storage.close();
+
+        Storage reopened = new Storage(path, new Ui());
+        reopened.enableJournal(Storage.DEFAULT_COMPACTION_THRESHOLD);
+        ArrayList<Task> loaded = reopened.load();
+        assertEquals(1, loaded.size());
+        assertEquals("T | 1 | join sports club", loaded.get(0).export());
+        assertEquals(id, loaded.get(0).getId());
+    }
+
+    @Test
+    public void journal_compacted_into_snapshot_test(@TempDir Path dir) throws Exception {
+        // once the journal reaches the threshold it is folded into the txt file
+        String path = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(path, new Ui());
+        storage.enableJournal(2);
+        ArrayList<Task> tasks = storage.load();
+        tasks.add(new Todos("read book"));
+        storage.recordAdd(tasks.get(0));
+        tasks.add(new Todos("return book"));
+        storage.recordAdd(tasks.get(1));
+        storage.save(tasks);
+        storage.close();
+
+        assertFalse(dir.resolve("tasks.txt.journal").toFile().exists());
+        assertEquals(2, new Storage(path, new Ui()).load().size());
+    }
+
+    @Test
+    public void background_writer_persists_after_close_test(@TempDir Path dir) throws Exception {
+        // a burst of saves through the background writer ends up fully on disk after close
+        String path = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(path, new Ui());
+        storage.enableBackgroundWriter();
+        ArrayList<Task> tasks = storage.load();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(new Todos("task " + i));
+            storage.recordAdd(tasks.get(i));
+            storage.save(tasks);
+        }
+        storage.close();
+
+        ArrayList<Task> loaded = new Storage(path, new Ui()).load();
+        assertEquals(200, loaded.size());
+        assertEquals("T | 0 | task 199", loaded.get(199).export());
+    }
+
+    @Test
+    public void binary_snapshot_round_trip_test(@TempDir Path dir) throws Exception {
+        // a text file exported as a binary snapshot loads back into the same tasks
+        ArrayList<Task> tasks = new Storage("./test/storageTest1.txt", new Ui()).load();
+        String path = dir.resolve("tasks.bin").toString();
+        Storage storage = new Storage(path, new Ui());
+        storage.export(tasks, path, Storage.Format.BINARY);
+
+        ArrayList<Task> loaded = storage.load();
+        assertEquals(tasks.size(), loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).export(), loaded.get(i).export());
+        }
+    }
+
+    @Test
+    public void compressed_snapshot_round_trip_test(@TempDir Path dir) throws Exception {
+        // a compressed snapshot is detected on load, keeps marks through rewrites and reports damage
+        ArrayList<Task> tasks = new Storage("./test/storageTest1.txt", new Ui()).load();
+        Path path = dir.resolve("tasks.txt");
+        Storage storage = new Storage(path.toString(), new Ui());
+        storage.setFormat(Storage.Format.COMPRESSED);
+        storage.write(tasks);
+        byte[] bytes = Files.readAllBytes(path);
+        assertEquals((byte) 0x1f, bytes[0]);
+        assertEquals((byte) 0x8b, bytes[1]);
+
+        TaskList list = new TaskList(new Storage(path.toString(), new Ui()).load());
+        assertEquals(tasks.size(), list.getList().size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).export(), list.getList().get(i).export());
+        }
+        boolean wasDone = list.getTask(0).isDone();
+        storage.recordMark(wasDone ? list.markUndone(0) : list.markDone(0));
+        storage.save(list);
+        assertEquals(!wasDone, new Storage(path.toString(), new Ui()).load().get(0).isDone());
+
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+        assertEquals(tasks.size(), new Storage(path.toString(), new Ui()).load().size());
+    }
+
+    @Test
+    public void parallel_load_matches_sequential_load_test() throws Exception {
+        // splitting a file into chunks gives the same tasks as reading it line by line
+        Storage sequential = new Storage("./test/storageTest1.txt", new Ui());
+        Storage parallel = new Storage("./test/storageTest1.txt", new Ui());
+        parallel.setParallelLoadThreshold(0);
+        ArrayList<Task> expected = sequential.load();
+        ArrayList<Task> actual = parallel.load();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).export(), actual.get(i).export());
+        }
+
+        Storage corrupted = new Storage("./test/storageTest2.txt", new Ui());
+        corrupted.setParallelLoadThreshold(0);
+        assertEquals(1, corrupted.load().size());
+    }
+
+    @Test
+    public void non_ascii_tasks_round_trip_test(@TempDir Path dir) throws Exception {
+        // descriptions outside ASCII survive the journal, the snapshot and both loaders, whatever the platform charset
+        String path = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(path, new Ui());
+        storage.enableJournal(Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList tasks = new TaskList(storage.load());
+        tasks.add(new Todos("café crème ☕ 读书"));
+        storage.recordAdd(tasks.getTask(0));
+        storage.close();
+        Storage journaled = new Storage(path, new Ui());
+        journaled.enableJournal(Storage.DEFAULT_COMPACTION_THRESHOLD);
+        assertEquals("T | 0 | café crème ☕ 读书", journaled.load().get(0).export());
+        journaled.close();
+
+        ArrayList<Task> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            expected.add(new Todos("tâche n°" + i + " – ☕ 读书"));
+        }
+        new Storage(path, new Ui()).export(expected, path, Storage.Format.TEXT);
+        assertTrue(Files.size(Path.of(path)) > 256 * 1024);
+        for (long threshold : new long[] {Long.MAX_VALUE, 0}) {
+            Storage reopened = new Storage(path, new Ui());
+            reopened.setParallelLoadThreshold(threshold);
+            ArrayList<Task> loaded = reopened.load();
+            assertEquals(expected.size(), loaded.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).export(), loaded.get(i).export());
+            }
+        }
+    }
+
+    @Test
+    public void batched_load_delivers_every_task_in_order_test(@TempDir Path dir) throws Exception {
+        // batches of a text and a binary load add up to the loaded tasks, in file order
+        ArrayList<Task> expected = new Storage("./test/storageTest1.txt", new Ui()).load();
+        String binary = dir.resolve("tasks.bin").toString();
+        new Storage(binary, new Ui()).export(expected, binary, Storage.Format.BINARY);
+        for (String path : new String[] {"./test/storageTest1.txt", binary}) {
+            ArrayList<Task> batched = new ArrayList<>();
+            ArrayList<Integer> sizes = new ArrayList<>();
+            new Storage(path, new Ui()).load(3, batch -> {
+                sizes.add(batch.size());
+                batched.addAll(batch);
+            });
+            assertEquals(expected.size(), batched.size());
+            assertTrue(sizes.stream().allMatch(size -> size <= 3), sizes.toString());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).export(), batched.get(i).export());
+            }
+        }
+    }
+
+    @Test
+    public void corrupted_lines_logged_as_one_summary_test(@TempDir Path dir) throws Exception {
+        // a load logs one summary with the first corrupted lines, and every line only at debug level
+        StringBuilder file = new StringBuilder();
+        for (int i = 1; i <= 30; i++) {
+            file.append(i % 2 == 0 ? "garbage" : "T | 0 | read book " + i).append('\n');
+        }
+        Path path = dir.resolve("tasks.txt");
+        Files.writeString(path, file.toString());
+        ArrayList<String> messages = new ArrayList<>();
+        Ui ui = new Ui() {
+            @Override
+            public void log(Level level, String message) {
+                if (isEnabled(level)) {
+                    messages.add(level + " " + message);
+                }
+            }
+        };
+        for (long threshold : new long[] {Long.MAX_VALUE, 0}) {
+            messages.clear();
+            Storage storage = new Storage(path.toString(), ui);
+            storage.setParallelLoadThreshold(threshold);
+            assertEquals(15, storage.load().size());
+            assertEquals(List.of("WARN loaded 15 tasks from " + path
+                    + ", 15 corrupted: lines 2, 4, 6, 8, 10, 12, 14, 16, 18, 20, ..."), messages);
+        }
+
+        messages.clear();
+        ui.setLevel(Ui.Level.DEBUG);
+        new Storage(path.toString(), ui).load();
+        assertEquals(31, messages.size());
+        assertEquals("DEBUG INFO[1] is successfully loaded", messages.get(0));
+    }
+
+    @Test
+    public void mark_patches_file_in_place_test(@TempDir Path dir) throws Exception {
+        // marking only flips the done flag in the file, in both patchable formats and with the background writer
+        for (Storage.Format format : List.of(Storage.Format.TEXT, Storage.Format.BINARY)) {
+            Path file = dir.resolve("tasks-" + format + ".txt");
+            Storage storage = new Storage(file.toString(), new Ui());
+            storage.setFormat(format);
+            TaskList tasks = new TaskList(storage.load());
+            for (int i = 0; i < 3; i++) {
+                tasks.add(new Todos("task " + i));
+                storage.recordAdd(tasks.getTask(i));
+            }
+            storage.save(tasks);
+            long length = file.toFile().length();
+
+            storage.enableBackgroundWriter();
+            storage.recordMark(tasks.markDone(1));
+            storage.save(tasks);
+            storage.recordMark(tasks.markDone(2));
+            storage.recordMark(tasks.markUndone(2));
+            storage.save(tasks);
+            storage.close();
+
+            assertTrue(storage.getWriterStats().startsWith("0 snapshot requests"));
+            assertEquals(length, file.toFile().length());
+            ArrayList<Task> loaded = new Storage(file.toString(), new Ui()).load();
+            assertEquals("T | 0 | task 0", loaded.get(0).export());
+            assertEquals("T | 1 | task 1", loaded.get(1).export());
+            assertEquals("T | 0 | task 2", loaded.get(2).export());
+        }
+    }
+
+    @Test
+    public void mark_rewrites_file_without_ids_test(@TempDir Path dir) throws Exception {
+        // a file written before tasks had ids cannot be patched, so it is rewritten with ids
+        Path file = dir.resolve("tasks.txt");
+        Files.writeString(file, "T | 0 | read book\nT | 0 | return book");
+        Storage storage = new Storage(file.toString(), new Ui());
+        TaskList tasks = new TaskList(storage.load());
+        storage.recordMark(tasks.markDone(1));
+        storage.save(tasks);
+
+        String lines = "1 | T | 0 | read book" + System.lineSeparator() + "2 | T | 1 | return book"
+                + System.lineSeparator();
+        Adler32 checksum = new Adler32();
+        checksum.update(lines.getBytes(StandardCharsets.UTF_8));
+        assertEquals(lines + String.format("# adler32 %08x", checksum.getValue()), Files.readString(file));
+    }
+
+    @Test
+    public void durability_modes_write_checksummed_snapshots_test(@TempDir Path dir) throws Exception {
+        // every mode leaves a snapshot whose checksum survives in-place patches and catches damage
+        ArrayList<String> logs = new ArrayList<>();
+        Ui ui = new Ui() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+        };
+        for (Storage.Durability durability : Storage.Durability.values()) {
+            for (Storage.Format format : List.of(Storage.Format.TEXT, Storage.Format.BINARY)) {
+                Path file = dir.resolve("tasks-" + durability + "-" + format + ".txt");
+                Storage storage = new Storage(file.toString(), ui);
+                storage.setDurability(durability);
+                storage.setFormat(format);
+                TaskList tasks = new TaskList(storage.load());
+                for (int i = 0; i < 3; i++) {
+                    tasks.add(new Todos("task " + i));
+                    storage.recordAdd(tasks.getTask(i));
+                }
+                storage.save(tasks);
+                storage.recordMark(tasks.markDone(1));
+                storage.save(tasks);
+
+                assertFalse(Files.exists(Path.of(file + ".tmp")));
+                assertTrue(storage.getWriteStats().startsWith(durability + " snapshots 1 (mean "));
+                assertTrue(storage.getWriteStats().contains(durability + " patches 1 (mean "));
+                logs.clear();
+                assertEquals("T | 1 | task 1", new Storage(file.toString(), ui).load().get(1).export());
+                assertFalse(logs.stream().anyMatch(log -> log.startsWith("checksum mismatch")), logs.toString());
+
+                byte[] bytes = Files.readAllBytes(file);
+                bytes[bytes.length / 2] ^= 1;
+                Files.write(file, bytes);
+                new Storage(file.toString(), ui).load();
+                assertTrue(logs.stream().anyMatch(log -> log.startsWith("checksum mismatch")), logs.toString());
+            }
+        }
+    }
+
+    @Test
+    public void sharded_storage_rewrites_only_dirty_shards_test(@TempDir Path dir) throws Exception {
+        // a change only replaces the shard of its task, emptied shards are deleted and shards load back in order
+        Path path = dir.resolve("tasks.txt");
+        Storage storage = new Storage(path.toString(), new Ui());
+        storage.enableSharding(10);
+        TaskList tasks = new TaskList(storage.load());
+        for (int i = 0; i < 35; i++) {
+            tasks.add(new Todos("task " + i));
+            storage.recordAdd(tasks.getTask(i));
+        }
+        storage.save(tasks);
+        assertTrue(Files.isRegularFile(path.resolve("manifest")));
+        Object[] before = new Object[4];
+        for (int shard = 0; shard < 4; shard++) {
+            before[shard] = Files.readAttributes(path.resolve("shard-" + shard), BasicFileAttributes.class).fileKey();
+        }
+
+        storage.recordMark(tasks.markDone(24));
+        for (int i = 0; i < 5; i++) {
+            storage.recordDelete(tasks.remove(30));
+        }
+        storage.save(tasks);
+        for (int shard : new int[] {0, 1}) {
+            assertEquals(before[shard],
+                    Files.readAttributes(path.resolve("shard-" + shard), BasicFileAttributes.class).fileKey());
+        }
+        assertFalse(before[2].equals(
+                Files.readAttributes(path.resolve("shard-2"), BasicFileAttributes.class).fileKey()));
+        assertFalse(Files.exists(path.resolve("shard-3")));
+
+        ArrayList<Task> loaded = new Storage(path.toString(), new Ui()).load();
+        assertEquals(30, loaded.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals("T | " + (i == 24 ? 1 : 0) + " | task " + i, loaded.get(i).export());
+        }
+    }
+
+    @Test
+    public void single_file_converted_into_shards_test(@TempDir Path dir) throws Exception {
+        // enabling sharding turns an existing task file into a directory of shards on the next save
+        Path path = dir.resolve("tasks.txt");
+        Files.copy(Path.of("./test/storageTest1.txt"), path);
+        ArrayList<Task> expected = new Storage(path.toString(), new Ui()).load();
+        Storage storage = new Storage(path.toString(), new Ui());
+        storage.enableSharding(3);
+        storage.save(new TaskList(storage.load()));
+
+        assertTrue(Files.isDirectory(path));
+        assertFalse(Files.exists(Path.of(path + ".tmp")));
+        ArrayList<Task> loaded = new Storage(path.toString(), new Ui()).load();
+        assertEquals(expected.size(), loaded.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).export(), loaded.get(i).export());
+        }
+    }
+
+    @Test
+    public void task_file_cache_reuses_unchanged_files_test(@TempDir Path dir) throws Exception {
+        // a cached file comes back as the same tasklist unless it changed, and evicted files are persisted
+        String pathA = dir.resolve("a.txt").toString();
+        String pathB = dir.resolve("b.txt").toString();
+        TaskFileCache cache = new TaskFileCache(TaskFileCache.DEFAULT_MAX_ENTRIES, 5);
+        Storage storageA = new Storage(pathA, new Ui());
+        TaskList tasksA = new TaskList(storageA.load());
+        cache.put(TaskFileCache.keyOf(pathA), new TaskFileCache.Entry(storageA, tasksA));
+        assertSame(tasksA, cache.take(TaskFileCache.keyOf(dir.resolve("x/../a.txt").toString())).tasks());
+
+        cache.put(TaskFileCache.keyOf(pathA), new TaskFileCache.Entry(storageA, tasksA));
+        Files.writeString(Path.of(pathA), "T | 0 | written elsewhere");
+        assertNull(cache.take(TaskFileCache.keyOf(pathA)));
+
+        storageA = new Storage(pathA, new Ui());
+        tasksA = new TaskList(storageA.load());
+        for (int i = 0; i < 2; i++) {
+            tasksA.add(new Todos("unsaved " + i));
+            storageA.recordAdd(tasksA.getTask(i + 1));
+        }
+        cache.put(TaskFileCache.keyOf(pathA), new TaskFileCache.Entry(storageA, tasksA));
+        Storage storageB = new Storage(pathB, new Ui());
+        TaskList tasksB = new TaskList(storageB.load());
+        tasksB.add(new Todos("b"), new Todos("b"), new Todos("b"));
+        cache.put(TaskFileCache.keyOf(pathB), new TaskFileCache.Entry(storageB, tasksB));
+        assertEquals(1, cache.size());
+        assertNull(cache.take(TaskFileCache.keyOf(pathA)));
+        assertEquals(3, new Storage(pathA, new Ui()).load().size());
+    }
+
+    @Test
+    public void reopening_current_file_keeps_pending_writes_test(@TempDir Path dir) throws Exception {
+        // choosing the open file again right after a burst of adds neither reloads it nor loses or duplicates tasks
+        String path = dir.resolve("tasks.txt").toString();
+        Barcelona barcelona = new Barcelona(path);
+        for (int i = 0; i < 300; i++) {
+            barcelona.getResponse("todo task " + i);
+        }
+        barcelona.changeDirectory(path);
+        barcelona.changeDirectory(dir.resolve("other.txt").toString());
+        barcelona.changeDirectory(path);
+        assertEquals(300, barcelona.getTasks().size());
+        barcelona.close();
+
+        Barcelona reopened = new Barcelona(path);
+        List<Task> loaded = reopened.getTasks();
+        reopened.close();
+        assertEquals(300, loaded.size());
+        assertEquals(300, loaded.stream().mapToLong(Task::getId).distinct().count());
+    }
+
+    @Test
+    public void marks_patched_in_place_without_journal_test(@TempDir Path dir) throws Exception {
+        // turning the journal off folds it into the task file, and later marks patch the file instead of journaling
+        String path = dir.resolve("tasks.txt").toString();
+        Barcelona barcelona = new Barcelona(path);
+        for (int i = 0; i < 5; i++) {
+            barcelona.getResponse("todo task " + i);
+        }
+        barcelona.setJournal(false);
+        assertFalse(dir.resolve("tasks.txt.journal").toFile().exists());
+        barcelona.getResponse("mark 2");
+        barcelona.close();
+        assertFalse(dir.resolve("tasks.txt.journal").toFile().exists());
+        assertTrue(barcelona.getWriteStats().contains("atomic patches 1"), barcelona.getWriteStats());
+
+        ArrayList<Task> loaded = new Storage(path, new Ui()).load();
+        assertEquals(5, loaded.size());
+        assertTrue(loaded.get(1).isDone());
+    }
+
+    @Test
+    public void journal_flushes_recorded_by_durability_mode_test(@TempDir Path dir) throws Exception {
+        // with the default journal, flushes that write records show up in the write stats of the active mode
+        for (Storage.Durability durability : List.of(Storage.Durability.ATOMIC, Storage.Durability.FSYNC)) {
+            Barcelona barcelona = new Barcelona(dir.resolve("tasks-" + durability + ".txt").toString());
+            barcelona.setDurability(durability);
+            barcelona.getResponse("todo read book");
+            barcelona.close();
+            String kind = durability == Storage.Durability.FSYNC ? " journal syncs " : " journal flushes ";
+            assertTrue(barcelona.getWriteStats().startsWith(durability + kind), barcelona.getWriteStats());
+        }
+    }
 }
@@ -1,4 +1,12 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import barcelona.storage.Storage;
+import barcelona.task.Deadlines;
 import barcelona.task.Task;
 import barcelona.task.TaskList;
 import barcelona.task.Todos;
@@ -6,6 +14,9 @@ import barcelona.ui.Ui;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TaskListTest {
     @Test
@@ -41,4 +52,184 @@ public class TaskListTest {
         list.remove(toRemove);
         assertFalse(list.getList().contains(toRemove));
     }
+
+    @Test
+    public void task_ids_stay_stable_across_removals() throws Exception {
+        // ids are unique and keep pointing at the same task while the positions before it shift
+        TaskList list = new TaskList();
+        for (int i = 0; i < 100; i++) {
+            list.add(new Todos("task " + i));
+        }
+        Task last = list.getTask(99);
+        for (int i = 0; i < 90; i++) {
+            list.remove(0);
+        }
+        assertEquals(9, list.indexOf(last.getId()));
+        assertEquals(last, list.getById(last.getId()));
+        assertEquals("task 95", list.getTask(5).getDescription());
+        list.add(new Todos("new task"));
+        assertEquals(last.getId() + 1, list.getTask(10).getId());
+    }
+
+    @Test
+    public void remove_tasks_in_bulk() throws Exception {
+        // small and large batches keep the remaining tasks in order and their ids reachable
+        TaskList list = new TaskList();
+        for (int i = 0; i < 200; i++) {
+            list.add(new Todos("task " + i));
+        }
+        BitSet few = new BitSet();
+        few.set(3);
+        few.set(7);
+        List<Task> removed = list.removeAll(few);
+        assertEquals("task 3", removed.get(0).getDescription());
+        assertEquals("task 7", removed.get(1).getDescription());
+
+        BitSet many = new BitSet();
+        many.set(0, 150);
+        Task kept = list.getTask(150);
+        assertEquals(150, list.removeAll(many).size());
+        assertEquals(48, list.size());
+        assertEquals(kept, list.getTask(0));
+        assertEquals(0, list.indexOf(kept.getId()));
+        assertEquals("task 199", list.getTask(47).getDescription());
+    }
+
+    @Test
+    public void compact_tasklist_matches_default() throws Exception {
+        // the columnar backend answers like the object backend after the same changes
+        TaskList list = new TaskList(new Storage("./test/storageTest1.txt", new Ui()).load());
+        TaskList compact = TaskList.compact(new Storage("./test/storageTest1.txt", new Ui()).load());
+        for (TaskList tasks : List.of(list, compact)) {
+            tasks.add(new Todos("read another book"));
+            tasks.add(new Deadlines(LocalDateTime.of(2019, 12, 1, 18, 0), "earlier"));
+            tasks.markUndone(0);
+            tasks.markDone(8);
+            tasks.remove(tasks.getTask(2));
+            BitSet indices = new BitSet();
+            indices.set(0, 3);
+            tasks.removeAll(indices);
+        }
+        assertTrue(compact.isCompact());
+        assertEquals(list.list(), compact.list());
+        assertEquals(list.filter("book"), compact.filter("book"));
+        assertEquals(list.dueBefore(LocalDateTime.of(2019, 12, 2, 18, 0)),
+                compact.dueBefore(LocalDateTime.of(2019, 12, 2, 18, 0)));
+        assertEquals(list.overdue(LocalDateTime.now()), compact.overdue(LocalDateTime.now()));
+        Task last = compact.getTask(compact.size() - 1);
+        assertEquals(compact.size() - 1, compact.indexOf(last.getId()));
+        assertEquals(last.export(), compact.getById(last.getId()).export());
+    }
+
+    @Test
+    public void filter_tasklist_by_keyword() throws Exception {
+        // the indexed search finds the same tasks as a plain substring scan, in list order
+        TaskList list = new TaskList(new Storage("./test/storageTest1.txt",
+                new Ui()).load());
+        list.add(new Todos("read another book"));
+        assertEquals("1. [T][X] read book\n2. [T][ ] read another book\n", list.filter("book"));
+        assertEquals("", list.filter("magazine"));
+
+        list.remove(list.getTask(0));
+        assertEquals("1. [T][ ] read another book\n", list.filter("book"));
+        assertEquals(list.getList().size(), list.filter("").split("\n").length);
+    }
+
+    @Test
+    public void query_deadlines_by_due_date() throws Exception {
+        // deadlines are found by time window in due date order, and done ones are not overdue
+        TaskList list = new TaskList(new Storage("./test/storageTest1.txt",
+                new Ui()).load());
+        LocalDateTime due = LocalDateTime.of(2019, 12, 2, 18, 0);
+        list.add(new Deadlines(due.minusDays(1), "earlier"));
+        assertEquals(3, list.dueBefore(due).split("\n").length);
+        assertEquals("1. [D][ ] earlier (by: 1 December 2019, 6:00PM)\n",
+                list.dueBetween(due.minusDays(2), due.minusMinutes(1)));
+        list.markDone(8);
+        assertEquals(2, list.overdue(LocalDateTime.now()).split("\n").length);
+    }
+
+    @Test
+    public void concurrent_readers_and_writers() throws Exception {
+        // writers add and remove their own tasks while readers list, search and look up tasks
+        TaskList list = new TaskList();
+        int writerCount = 4;
+        int tasksPerWriter = 500;
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < writerCount; w++) {
+            final int writer = w;
+            writers.add(new Thread(() -> {
+                try {
+                    List<Task> added = new ArrayList<>();
+                    for (int i = 0; i < tasksPerWriter; i++) {
+                        Task task = new Todos("task " + writer + "-" + i);
+                        list.add(task);
+                        added.add(task);
+                    }
+                    for (int i = 0; i < tasksPerWriter; i += 2) {
+                        list.remove(added.get(i));
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    while (isWriting.get()) {
+                        String[] lines = list.list().split("\n");
+                        if (!lines[0].isEmpty()) {
+                            assertTrue(lines[lines.length - 1].startsWith(lines.length + ". "));
+                        }
+                        list.filter("task 1-");
+                        int size = list.size();
+                        if (size > 0) {
+                            try {
+                                list.getTask(size - 1);
+                            } catch (IndexOutOfBoundsException e) {
+                                // a writer removed the task after size() was read
+                            }
+                        }
+                        list.getList();
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        isWriting.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(failures.isEmpty(), failures.toString());
+        assertEquals(writerCount * tasksPerWriter / 2, list.size());
+        for (int w = 0; w < writerCount; w++) {
+            assertEquals(tasksPerWriter / 2, list.filter("task " + w + "-").split("\n").length);
+        }
+    }
+
+    @Test
+    public void snapshot_shared_until_change() throws Exception {
+        // listings with no change in between share one snapshot, and a change leaves earlier snapshots as they were
+        TaskList list = new TaskList();
+        list.add(new Todos("read book"));
+        List<Task> first = list.snapshot();
+        assertSame(first, list.snapshot());
+        list.add(new Todos("return book"));
+        List<Task> second = list.snapshot();
+        assertNotSame(first, second);
+        assertEquals(1, first.size());
+        assertEquals(2, second.size());
+    }
 }